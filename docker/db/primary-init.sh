@@ -0,0 +1,9 @@
+#!/bin/sh
+# Runs once on an empty data directory: lets db-replica stream WAL from this instance.
+set -e
+
+psql -v ON_ERROR_STOP=1 --username "$POSTGRES_USER" --dbname "$POSTGRES_DB" <<-SQL
+    create role replicator with replication login password 'replicator';
+SQL
+
+echo "host replication replicator all scram-sha-256" >> "$PGDATA/pg_hba.conf"
@@ -0,0 +1,42 @@
+#!/bin/sh
+# Measures time to first healthy response and resident memory of a start command, averaged over several runs.
+#
+#   docker/startup-benchmark.sh 5 java -jar target/url-shortening-service-0.0.1-SNAPSHOT.jar
+#   LIQUIBASE_ENABLED=false docker/startup-benchmark.sh 5 \
+#       java -Dspring.aot.enabled=true -jar target/url-shortening-service-0.0.1-SNAPSHOT.jar
+#   LIQUIBASE_ENABLED=false docker/startup-benchmark.sh 5 target/url-shortening-service
+#
+# RSS is sampled right after the first healthy response, HWM is the peak reached during startup.
+set -eu
+
+RUNS=$1
+shift
+HEALTH_URL=${HEALTH_URL:-http://localhost:8080/actuator/health}
+
+total_ms=0
+total_rss=0
+total_hwm=0
+i=1
+while [ "$i" -le "$RUNS" ]; do
+    start=$(date +%s%N)
+    "$@" > /dev/null 2>&1 &
+    pid=$!
+    until curl -fs -o /dev/null "$HEALTH_URL"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "run $i: process exited before becoming healthy" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    ms=$(( ($(date +%s%N) - start) / 1000000 ))
+    rss=$(awk '/^VmRSS/ {print $2}' "/proc/$pid/status")
+    hwm=$(awk '/^VmHWM/ {print $2}' "/proc/$pid/status")
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo "run $i: ${ms} ms, rss $((rss / 1024)) MiB, hwm $((hwm / 1024)) MiB"
+    total_ms=$((total_ms + ms))
+    total_rss=$((total_rss + rss))
+    total_hwm=$((total_hwm + hwm))
+    i=$((i + 1))
+done
+echo "mean: $((total_ms / RUNS)) ms, rss $((total_rss / RUNS / 1024)) MiB, hwm $((total_hwm / RUNS / 1024)) MiB"
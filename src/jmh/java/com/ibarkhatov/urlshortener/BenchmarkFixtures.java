@@ -0,0 +1,78 @@
+package com.ibarkhatov.urlshortener;
+
+import com.ibarkhatov.urlshortener.codec.ShortCodeCodec;
+import com.ibarkhatov.urlshortener.config.ShortCodeProperties;
+import com.ibarkhatov.urlshortener.domain.ShortUrl;
+import com.ibarkhatov.urlshortener.repository.projection.TopItemView;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BenchmarkFixtures {
+    public static final ShortCodeCodec CODEC = new ShortCodeCodec(new ShortCodeProperties(true, 42L));
+    private static final Instant CREATED_AT = Instant.parse("2024-09-01T10:15:30.123456Z");
+
+    private BenchmarkFixtures() {
+    }
+
+    public static String originalUrl(long id) {
+        return "https://example.com/articles/" + id + "?utm_source=newsletter&utm_medium=email";
+    }
+
+    public static ShortUrl shortUrl(long id) {
+        ShortUrl entity = new ShortUrl();
+        entity.setId(id);
+        entity.setOriginalUrl(originalUrl(id));
+        entity.setShortCode(CODEC.encode(id));
+        entity.setCreatedAt(CREATED_AT);
+        entity.setClickCount(id * 7);
+        entity.setLastAccessedAt(CREATED_AT.plusSeconds(id));
+        return entity;
+    }
+
+    public static List<ShortUrl> shortUrls(int count) {
+        List<ShortUrl> entities = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            entities.add(shortUrl(id));
+        }
+        return entities;
+    }
+
+    public static List<TopItemView> topItems(int count) {
+        List<TopItemView> views = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            views.add(new TopItem(id, CODEC.encode(id), originalUrl(id), 1_000_000 - id, CREATED_AT.plusSeconds(id)));
+        }
+        return views;
+    }
+
+    record TopItem(Long id, String shortCode, String originalUrl, long clickCount, Instant lastAccessedAt)
+            implements TopItemView {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getShortCode() {
+            return shortCode;
+        }
+
+        @Override
+        public String getOriginalUrl() {
+            return originalUrl;
+        }
+
+        @Override
+        public long getClickCount() {
+            return clickCount;
+        }
+
+        @Override
+        public Instant getLastAccessedAt() {
+            return lastAccessedAt;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ibarkhatov.urlshortener.codec;
+
+import com.ibarkhatov.urlshortener.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShortCodeCodecBenchmark {
+    private static final int CODES = 1024;
+
+    private final ShortCodeCodec codec = BenchmarkFixtures.CODEC;
+    private final String[] codes = new String[CODES];
+    private long id = 1_000_000;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < CODES; i++) {
+            codes[i] = codec.encode(1_000_000 + i * 7919L);
+        }
+    }
+
+    @Benchmark
+    public String encode() {
+        return codec.encode(id++);
+    }
+
+    @Benchmark
+    public long decode() {
+        next = next + 1 & CODES - 1;
+        return codec.decode(codes[next]);
+    }
+
+    @Benchmark
+    public long decodeLegacy() {
+        return codec.decode("AAAAAAAPQkA");
+    }
+}
@@ -0,0 +1,256 @@
+package com.ibarkhatov.urlshortener.controller;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import com.ibarkhatov.urlshortener.BenchmarkFixtures;
+import com.ibarkhatov.urlshortener.accesslog.AccessLog;
+import com.ibarkhatov.urlshortener.admission.AdmissionEndpoint;
+import com.ibarkhatov.urlshortener.bloom.ShortCodeBloomFilter;
+import com.ibarkhatov.urlshortener.cache.RedirectCache;
+import com.ibarkhatov.urlshortener.codec.ShortCodeCodec;
+import com.ibarkhatov.urlshortener.config.AccessLogProperties;
+import com.ibarkhatov.urlshortener.config.ClickRollupProperties;
+import com.ibarkhatov.urlshortener.config.ClickTrackingProperties;
+import com.ibarkhatov.urlshortener.config.RedirectCacheProperties;
+import com.ibarkhatov.urlshortener.config.RedirectSnapshotProperties;
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import com.ibarkhatov.urlshortener.config.ShortCodeBloomFilterProperties;
+import com.ibarkhatov.urlshortener.config.TrendingProperties;
+import com.ibarkhatov.urlshortener.config.UniqueVisitorProperties;
+import com.ibarkhatov.urlshortener.config.UrlDedupProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.mapper.ShortUrlMapperImpl;
+import com.ibarkhatov.urlshortener.mapper.TopUrlMapperImpl;
+import com.ibarkhatov.urlshortener.metrics.UrlShortenerMetrics;
+import com.ibarkhatov.urlshortener.repository.ShortUrlRepository;
+import com.ibarkhatov.urlshortener.repository.projection.ShortUrlClickView;
+import com.ibarkhatov.urlshortener.service.UrlShorteningService;
+import com.ibarkhatov.urlshortener.snapshot.RedirectSnapshotStore;
+import com.ibarkhatov.urlshortener.tracking.ClickBatchWriter;
+import com.ibarkhatov.urlshortener.tracking.ClickEvent;
+import com.ibarkhatov.urlshortener.tracking.ClickTracker;
+import com.ibarkhatov.urlshortener.trending.TrendingTracker;
+import com.ibarkhatov.urlshortener.uniques.UniqueVisitorTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UrlController#redirect} down to a stubbed repository: a cache hit, a cache miss that goes to the
+ * repository and a code that does not exist. Clicks go through the real buffer to a writer that discards them.
+ * <p>
+ * {@code metrics=prometheus} records the redirect timer and miss counter on a Prometheus registry with
+ * histogram buckets, as production does; {@code metrics=off} records them on a registry without meters. The
+ * difference is the cost of keeping the instrumentation on.
+ * <p>
+ * {@code logging=lines} writes the redirect path's log lines, INFO until the access log replaced them and DEBUG
+ * since, synchronously to a file as a file or console appender does; {@code logging=access-log} leaves them off
+ * and hands one record per redirect to the {@link AccessLog} as its filter does, sampling nothing out so every
+ * record reaches the ring buffer. {@code logging=off} is the baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RedirectBenchmark {
+    private static final int LINKS = 10_000;
+    private static final List<Class<?>> LOGGED = List.of(UrlController.class, UrlShorteningService.class);
+
+    @Param({"off", "prometheus"})
+    public String metrics;
+
+    @Param({"off", "lines", "access-log"})
+    public String logging;
+
+    private String[] codes;
+    private String[] paths;
+    private RedirectCache redirectCache;
+    private ClickTracker clickTracker;
+    private TrendingTracker trendingTracker;
+    private UrlController controller;
+    private MockHttpServletRequest request;
+    private Path logDirectory;
+    private FileAppender<ILoggingEvent> lines;
+    private AccessLog accessLog;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        ShortCodeCodec codec = BenchmarkFixtures.CODEC;
+        Map<String, ShortUrlClickView> rows = new HashMap<>();
+        codes = new String[LINKS];
+        paths = new String[LINKS];
+        for (int i = 0; i < LINKS; i++) {
+            long id = i + 1;
+            codes[i] = codec.encode(id);
+            paths[i] = "/" + codes[i];
+            rows.put(codes[i], new ClickRow(id, BenchmarkFixtures.originalUrl(id), codes[i], null, null));
+        }
+
+        MeterRegistry meterRegistry = metrics.equals("prometheus")
+                ? new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)
+                : new CompositeMeterRegistry();
+        Shards shards = new Shards(new ShardingProperties(false, List.of(), 0, null, 0));
+        redirectCache = new RedirectCache(new RedirectCacheProperties(LINKS * 2, Duration.ofHours(1), 0), meterRegistry);
+        clickTracker = new ClickTracker(new ClickTrackingProperties(65_536, 1000, Duration.ofMillis(100), Duration.ZERO, 0),
+                new DiscardingWriter(), shards, meterRegistry);
+        clickTracker.start();
+        trendingTracker = new TrendingTracker(new TrendingProperties(true, 1000, 65_536), meterRegistry);
+        trendingTracker.start();
+        UrlShorteningService service = new UrlShorteningService(stubRepository(rows), null, shards, null, null, codec,
+                new ShortUrlMapperImpl(), new TopUrlMapperImpl(), redirectCache, new RedirectSnapshotStore(null, redirectCache,
+                new RedirectSnapshotProperties(false, null, null, null, null, 0), shards, meterRegistry),
+                new ShortCodeBloomFilter(null, shards, new ShortCodeBloomFilterProperties(false, 1, 0.01, null, null, null, 0), meterRegistry),
+                clickTracker, new UniqueVisitorTracker(new UniqueVisitorProperties(true, 12, null, 1000, 100_000), null, shards, meterRegistry),
+                null, trendingTracker, new UrlDedupProperties(false),
+                new ClickRollupProperties(Duration.ofDays(2), 1000));
+        request = new MockHttpServletRequest("GET", "/");
+        request.setRemoteAddr("203.0.113.7");
+        request.addHeader("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) Gecko/20100101 Firefox/128.0");
+        controller = new UrlController(service, null, null, null, new UrlShortenerMetrics(meterRegistry), null);
+
+        for (String code : codes) {
+            controller.redirect(code, request);
+        }
+
+        logDirectory = Files.createTempDirectory("redirect-benchmark");
+        if (logging.equals("lines")) {
+            lines = fileAppender(logDirectory.resolve("application.log"));
+        } else if (logging.equals("access-log")) {
+            accessLog = new AccessLog(new AccessLogProperties(true, logDirectory.resolve("access.log"),
+                    DataSize.ofMegabytes(100), 1, 65_536, Duration.ofMillis(100), Map.of()), meterRegistry);
+            accessLog.start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        clickTracker.stop();
+        trendingTracker.stop();
+        if (lines != null) {
+            LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+            for (Class<?> type : LOGGED) {
+                context.getLogger(type).detachAppender(lines);
+                context.getLogger(type).setLevel(null);
+            }
+            lines.stop();
+        }
+        if (accessLog != null) {
+            accessLog.stop();
+        }
+        FileSystemUtils.deleteRecursively(logDirectory);
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> redirectCached() {
+        int index = nextIndex();
+        return redirect(codes[index], paths[index]);
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> redirectUncached() {
+        int index = nextIndex();
+        redirectCache.evict(codes[index]);
+        return redirect(codes[index], paths[index]);
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> redirectNotFound() {
+        return redirect("AAAAAAAAAAA", "/AAAAAAAAAAA");
+    }
+
+    private ResponseEntity<Void> redirect(String code, String path) {
+        if (accessLog == null) {
+            return controller.redirect(code, request);
+        }
+        long start = System.nanoTime();
+        ResponseEntity<Void> response = controller.redirect(code, request);
+        accessLog.record(AdmissionEndpoint.REDIRECT, request.getMethod(), path, response.getStatusCode().value(),
+                System.nanoTime() - start, request.getRemoteAddr(), request.getHeader(HttpHeaders.USER_AGENT));
+        return response;
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = next + 1 == LINKS ? 0 : next + 1;
+        return index;
+    }
+
+    /**
+     * Turns on the DEBUG lines of the redirect path and sends them to a file, flushed on every line as logback
+     * does by default.
+     */
+    private static FileAppender<ILoggingEvent> fileAppender(Path file) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %-5level [%thread] %logger{36} - %msg%n");
+        encoder.start();
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(file.toString());
+        appender.setEncoder(encoder);
+        appender.start();
+        for (Class<?> type : LOGGED) {
+            Logger logger = context.getLogger(type);
+            logger.setLevel(Level.DEBUG);
+            logger.addAppender(appender);
+        }
+        return appender;
+    }
+
+    /**
+     * Answers {@code incrementAndReturn} from a map. The proxy's argument array is part of the uncached
+     * path's allocation; a Spring Data proxy allocates far more than that.
+     */
+    private static ShortUrlRepository stubRepository(Map<String, ShortUrlClickView> rows) {
+        return (ShortUrlRepository) Proxy.newProxyInstance(ShortUrlRepository.class.getClassLoader(),
+                new Class<?>[]{ShortUrlRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("incrementAndReturn")) {
+                        return Optional.ofNullable(rows.get((String) args[1]));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private record ClickRow(Long getId, String getOriginalUrl, String getShortCode, Instant getExpiresAt,
+                            Long getMaxClicks) implements ShortUrlClickView {
+    }
+
+    private static class DiscardingWriter extends ClickBatchWriter {
+        DiscardingWriter() {
+            super(null);
+        }
+
+        @Override
+        public void write(List<ClickEvent> events) {
+        }
+    }
+}
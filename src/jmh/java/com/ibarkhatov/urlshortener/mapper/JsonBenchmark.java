@@ -0,0 +1,49 @@
+package com.ibarkhatov.urlshortener.mapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibarkhatov.urlshortener.BenchmarkFixtures;
+import com.ibarkhatov.urlshortener.dto.TopUrlResponse;
+import com.ibarkhatov.urlshortener.dto.UrlResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response bodies as written by the message converter, with the same Java time handling as the application's
+ * {@link ObjectMapper}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonBenchmark {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Param({"10", "100"})
+    public int size;
+
+    private List<UrlResponse> urls;
+    private List<TopUrlResponse> top;
+
+    @Setup
+    public void setUp() {
+        ShortUrlMapper shortUrlMapper = new ShortUrlMapperImpl();
+        urls = BenchmarkFixtures.shortUrls(size).stream().map(shortUrlMapper::toDto).toList();
+        top = new TopUrlMapperImpl().toDtoList(BenchmarkFixtures.topItems(size));
+    }
+
+    @Benchmark
+    public byte[] writeUrls() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(urls);
+    }
+
+    @Benchmark
+    public byte[] writeTop() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(top);
+    }
+}
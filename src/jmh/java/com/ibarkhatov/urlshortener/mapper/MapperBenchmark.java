@@ -0,0 +1,46 @@
+package com.ibarkhatov.urlshortener.mapper;
+
+import com.ibarkhatov.urlshortener.BenchmarkFixtures;
+import com.ibarkhatov.urlshortener.domain.ShortUrl;
+import com.ibarkhatov.urlshortener.dto.TopUrlResponse;
+import com.ibarkhatov.urlshortener.dto.UrlResponse;
+import com.ibarkhatov.urlshortener.repository.projection.TopItemView;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapperBenchmark {
+    private final ShortUrlMapper shortUrlMapper = new ShortUrlMapperImpl();
+    private final TopUrlMapper topUrlMapper = new TopUrlMapperImpl();
+    private final ShortUrl entity = BenchmarkFixtures.shortUrl(42);
+
+    @State(Scope.Thread)
+    public static class TopItems {
+        @Param({"10", "100"})
+        public int size;
+
+        List<TopItemView> views;
+
+        @Setup
+        public void setUp() {
+            views = BenchmarkFixtures.topItems(size);
+        }
+    }
+
+    @Benchmark
+    public UrlResponse shortUrlToDto() {
+        return shortUrlMapper.toDto(entity);
+    }
+
+    @Benchmark
+    public List<TopUrlResponse> topItemsToDtoList(TopItems items) {
+        return topUrlMapper.toDtoList(items.views);
+    }
+}
@@ -0,0 +1,115 @@
+package com.ibarkhatov.urlshortener.repository;
+
+import com.ibarkhatov.urlshortener.BenchmarkFixtures;
+import com.ibarkhatov.urlshortener.codec.ShortCodeCodec;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.*;
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redirect lookup on an embedded Postgres holding {@code rows} links with legacy codes: through the
+ * {@code short_code} unique index as before, and by primary key after decoding the code, keeping the code
+ * comparison the redirect query does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ShortCodeLookupBenchmark {
+    private static final int CODES = 1 << 16;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private final ShortCodeCodec codec = BenchmarkFixtures.CODEC;
+    private final String[] codes = new String[CODES];
+    private EmbeddedPostgres postgres;
+    private Connection connection;
+    private PreparedStatement byShortCode;
+    private PreparedStatement byId;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        postgres = EmbeddedPostgres.builder().start();
+        connection = postgres.getPostgresDatabase().getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    create table short_url (
+                        id bigint primary key,
+                        original_url varchar(2048) not null,
+                        short_code varchar(32) constraint uq_short_url_short_code unique,
+                        created_at timestamp with time zone not null default now(),
+                        click_count bigint not null default 0,
+                        last_accessed_at timestamp with time zone
+                    )
+                    """);
+        }
+        StringBuilder copy = new StringBuilder();
+        for (long id = 1; id <= rows; id++) {
+            copy.append(id).append('\t').append(BenchmarkFixtures.originalUrl(id)).append('\t')
+                    .append(legacyCode(id)).append('\n');
+        }
+        connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("copy short_url(id, original_url, short_code) from stdin", new StringReader(copy.toString()));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("analyze short_url");
+        }
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < CODES; i++) {
+            codes[i] = legacyCode(random.nextLong(1, rows + 1));
+        }
+        byShortCode = connection.prepareStatement("select id, original_url from short_url where short_code = ?");
+        byId = connection.prepareStatement("select id, original_url from short_url where id = ? and short_code = ?");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, SQLException {
+        connection.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public String lookupByShortCode() throws SQLException {
+        byShortCode.setString(1, nextCode());
+        return originalUrl(byShortCode);
+    }
+
+    @Benchmark
+    public String lookupByDecodedId() throws SQLException {
+        String code = nextCode();
+        byId.setLong(1, codec.decode(code));
+        byId.setString(2, code);
+        return originalUrl(byId);
+    }
+
+    private String nextCode() {
+        next = next + 1 & CODES - 1;
+        return codes[next];
+    }
+
+    private static String originalUrl(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getString(2) : null;
+        }
+    }
+
+    private static String legacyCode(long id) {
+        return Base64.encodeBase64URLSafeString(ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+    }
+}
@@ -0,0 +1,23 @@
+package com.ibarkhatov.urlshortener.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimeWindowsBenchmark {
+
+    @Param({"30s", "15m", "24h", "7d"})
+    public String window;
+
+    @Benchmark
+    public Duration parse() {
+        return TimeWindows.parse(window);
+    }
+}
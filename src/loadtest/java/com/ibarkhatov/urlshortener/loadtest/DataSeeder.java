@@ -0,0 +1,123 @@
+package com.ibarkhatov.urlshortener.loadtest;
+
+import com.ibarkhatov.urlshortener.codec.ShortCodeCodec;
+import com.ibarkhatov.urlshortener.repository.AccessPartitionRepository;
+import com.ibarkhatov.urlshortener.service.ClickRollupService;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.SplittableRandom;
+
+/**
+ * Fills an empty database with links and a click history through {@code COPY}, then derives click counts and
+ * rollups from that history the same way the application would have.
+ */
+class DataSeeder {
+    private static final int CHUNK_SIZE = 100_000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShortCodeCodec codec;
+    private final AccessPartitionRepository partitionRepository;
+    private final ClickRollupService rollupService;
+
+    DataSeeder(DataSource dataSource, ShortCodeCodec codec, AccessPartitionRepository partitionRepository,
+               ClickRollupService rollupService) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.codec = codec;
+        this.partitionRepository = partitionRepository;
+        this.rollupService = rollupService;
+    }
+
+    /**
+     * @return number of links available to the workload, ids {@code 1..n}
+     */
+    long seed(LoadTestOptions options) throws SQLException {
+        Long existing = jdbcTemplate.queryForObject("select max(id) from short_url", Long.class);
+        if (existing != null) {
+            System.out.printf("Reusing %d existing links%n", existing);
+            return existing;
+        }
+        Instant now = Instant.now();
+        Instant historyStart = now.minus(options.history());
+        long started = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+            copyLinks(copy, options.rows(), historyStart);
+            jdbcTemplate.execute("select setval('short_url_id_seq', " + options.rows() + ")");
+            System.out.printf("Seeded %d links in %ds%n", options.rows(), elapsedSeconds(started));
+
+            for (LocalDate day = LocalDate.ofInstant(historyStart, ZoneOffset.UTC);
+                 !day.isAfter(LocalDate.ofInstant(now, ZoneOffset.UTC)); day = day.plusDays(1)) {
+                partitionRepository.createDailyPartition(day);
+            }
+            copyAccesses(copy, options, historyStart, now);
+        }
+        System.out.printf("Seeded %d clicks in %ds%n", options.accesses(), elapsedSeconds(started));
+
+        jdbcTemplate.update("""
+                update short_url s
+                set click_count = a.clicks, last_accessed_at = a.last_accessed_at
+                from (select short_url_id, count(*) as clicks, max(accessed_at) as last_accessed_at
+                      from short_url_access
+                      group by short_url_id) a
+                where s.id = a.short_url_id
+                """);
+        rollupService.backfill(historyStart, now.truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS));
+        jdbcTemplate.execute("analyze");
+        System.out.printf("Click counts and rollups derived in %ds%n", elapsedSeconds(started));
+        return options.rows();
+    }
+
+    private void copyLinks(CopyManager copy, long rows, Instant createdAt) throws SQLException {
+        StringBuilder chunk = new StringBuilder();
+        for (long id = 1; id <= rows; id++) {
+            chunk.append(id).append('\t')
+                    .append("https://example.com/articles/").append(id).append('\t')
+                    .append(codec.encode(id)).append('\t')
+                    .append(createdAt).append('\t')
+                    .append(0).append('\n');
+            if (id % CHUNK_SIZE == 0 || id == rows) {
+                copyIn(copy, "copy short_url(id, original_url, short_code, created_at, click_count) from stdin", chunk);
+            }
+        }
+    }
+
+    private void copyAccesses(CopyManager copy, LoadTestOptions options, Instant from, Instant to) throws SQLException {
+        LinkPopularity popularity = new LinkPopularity(options.rows(), options.zipfExponent(), options.seed());
+        SplittableRandom random = new SplittableRandom(options.seed());
+        long spanMillis = to.toEpochMilli() - from.toEpochMilli();
+        StringBuilder chunk = new StringBuilder();
+        for (long i = 1; i <= options.accesses(); i++) {
+            chunk.append(popularity.nextId()).append('\t')
+                    .append(Instant.ofEpochMilli(from.toEpochMilli() + random.nextLong(spanMillis))).append('\n');
+            if (i % CHUNK_SIZE == 0 || i == options.accesses()) {
+                copyIn(copy, "copy short_url_access(short_url_id, accessed_at) from stdin", chunk);
+            }
+        }
+    }
+
+    private static void copyIn(CopyManager copy, String sql, StringBuilder chunk) throws SQLException {
+        try {
+            copy.copyIn(sql, new StringReader(chunk.toString()));
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+        chunk.setLength(0);
+    }
+
+    private static long elapsedSeconds(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000_000;
+    }
+}
@@ -0,0 +1,41 @@
+package com.ibarkhatov.urlshortener.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpRequest;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * One request type of the mix with its arrival rate and what was measured for it. Latency is recorded in
+ * microseconds from the moment a request was due, not from when it was sent, so a stalled server shows up in
+ * the percentiles instead of silently lowering the request rate.
+ */
+class Endpoint {
+    static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    final String name;
+    final double ratePerSecond;
+    final int expectedStatus;
+    final Supplier<HttpRequest> requests;
+    final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    final LongAdder succeeded = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    final LongAdder dropped = new LongAdder();
+    final AtomicInteger inFlight = new AtomicInteger();
+
+    Endpoint(String name, double ratePerSecond, int expectedStatus, Supplier<HttpRequest> requests) {
+        this.name = name;
+        this.ratePerSecond = ratePerSecond;
+        this.expectedStatus = expectedStatus;
+        this.requests = requests;
+    }
+
+    void record(long dueNanos, boolean success) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - dueNanos), MAX_LATENCY_MICROS));
+        (success ? succeeded : failed).increment();
+    }
+}
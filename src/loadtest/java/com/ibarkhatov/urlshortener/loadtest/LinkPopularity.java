@@ -0,0 +1,31 @@
+package com.ibarkhatov.urlshortener.loadtest;
+
+import org.apache.commons.rng.UniformRandomProvider;
+import org.apache.commons.rng.sampling.distribution.DiscreteSampler;
+import org.apache.commons.rng.sampling.distribution.RejectionInversionZipfSampler;
+import org.apache.commons.rng.simple.RandomSource;
+
+/**
+ * Draws link ids with Zipf distributed popularity. Ranks are scattered over the id space so the hot links are
+ * not simply the oldest ones. Not thread-safe.
+ */
+class LinkPopularity {
+    private static final long STRIDE = 2_654_435_761L;
+
+    private final long rows;
+    private final DiscreteSampler sampler;
+
+    LinkPopularity(long rows, double exponent, long seed) {
+        if (rows > Integer.MAX_VALUE || rows % STRIDE == 0) {
+            throw new IllegalArgumentException("Unsupported number of rows: " + rows);
+        }
+        UniformRandomProvider random = RandomSource.XO_RO_SHI_RO_128_PP.create(seed);
+        this.rows = rows;
+        this.sampler = RejectionInversionZipfSampler.of(random, (int) rows, exponent);
+    }
+
+    long nextId() {
+        long rank = sampler.sample() - 1;
+        return rank * STRIDE % rows + 1;
+    }
+}
@@ -0,0 +1,100 @@
+package com.ibarkhatov.urlshortener.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ibarkhatov.urlshortener.UrlShorteningServiceApplication;
+import com.ibarkhatov.urlshortener.bloom.ShortCodeBloomFilter;
+import com.ibarkhatov.urlshortener.cache.RedirectCacheWarmer;
+import com.ibarkhatov.urlshortener.codec.ShortCodeCodec;
+import com.ibarkhatov.urlshortener.repository.AccessPartitionRepository;
+import com.ibarkhatov.urlshortener.service.ClickRollupService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Boots the application against a throwaway Postgres (or {@code --jdbc-url}), seeds it, drives a mixed open
+ * model workload and writes per endpoint throughput and latency percentiles to {@code --result}.
+ * <p>
+ * The application runs in this JVM with its logs redirected to {@code target/loadtest-app.log}; the load
+ * generator competes with it for CPU, so compare runs made on the same machine only.
+ */
+public class LoadTest {
+    private static final List<String> TOP_WINDOWS = List.of("5m", "1h", "24h", "7d", "");
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        EmbeddedPostgres postgres = options.jdbcUrl() == null ? EmbeddedPostgres.builder().start() : null;
+        String jdbcUrl = postgres == null ? options.jdbcUrl() : postgres.getJdbcUrl("postgres", "postgres");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UrlShorteningServiceApplication.class)
+                .run("--spring.datasource.url=" + jdbcUrl,
+                        "--spring.datasource.username=" + options.username(),
+                        "--spring.datasource.password=" + options.password(),
+                        "--server.port=0",
+                        "--url-shortener.admission.enabled=false",
+                        "--url-shortener.short-code.key=42",
+                        "--logging.file.name=target/loadtest-app.log",
+                        "--logging.threshold.console=OFF")) {
+            long links = new DataSeeder(context.getBean(DataSource.class), context.getBean(ShortCodeCodec.class),
+                    context.getBean(AccessPartitionRepository.class), context.getBean(ClickRollupService.class))
+                    .seed(options);
+            // Seeded rows are backdated, so the filter's incremental syncs would never see them
+            context.getBean(ShortCodeBloomFilter.class).rebuild();
+            context.getBean(RedirectCacheWarmer.class).warmUp();
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            run(options, URI.create("http://localhost:" + port), context.getBean(ShortCodeCodec.class), links);
+        } finally {
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+    }
+
+    private static void run(LoadTestOptions options, URI baseUri, ShortCodeCodec codec, long links) throws Exception {
+        LinkPopularity popularity = new LinkPopularity(links, options.zipfExponent(), options.seed() + 1);
+        AtomicLong created = new AtomicLong();
+        AtomicLong topRequests = new AtomicLong();
+        List<Endpoint> endpoints = List.of(
+                new Endpoint("redirect", options.redirectRate(), 302, () -> HttpRequest.newBuilder(
+                        baseUri.resolve("/" + codec.encode(popularity.nextId()))).GET().build()),
+                new Endpoint("create", options.createRate(), 201, () -> HttpRequest.newBuilder(baseUri.resolve("/urls"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"originalUrl\":\"https://load.example.com/" + created.incrementAndGet() + "\"}"))
+                        .build()),
+                new Endpoint("top", options.topRate(), 200, () -> HttpRequest.newBuilder(baseUri.resolve(
+                        "/analytics/top?limit=10&window="
+                                + TOP_WINDOWS.get((int) (topRequests.getAndIncrement() % TOP_WINDOWS.size()))))
+                        .GET().build()));
+
+        Instant startedAt = Instant.now();
+        System.out.printf("Running %s warm-up and %s measurement against %s%n", options.warmup(), options.duration(), baseUri);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        new OpenLoopDriver(client, options.maxInFlight(), options.seed())
+                .run(endpoints, options.warmup().toNanos(), options.duration().toNanos());
+
+        LoadTestResult result = new LoadTestResult(startedAt, links, options.warmup(), options.duration(),
+                endpoints.stream().map(e -> LoadTestResult.EndpointResult.of(e, options.duration())).toList());
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build()
+                .enable(SerializationFeature.INDENT_OUTPUT);
+        Files.createDirectories(options.result().toAbsolutePath().getParent());
+        objectMapper.writeValue(options.result().toFile(), result);
+        for (LoadTestResult.EndpointResult endpoint : result.endpoints()) {
+            System.out.printf("%-9s %8.1f req/s  ok=%d failed=%d dropped=%d  p50=%.2fms p95=%.2fms p99=%.2fms p999=%.2fms max=%.2fms%n",
+                    endpoint.endpoint(), endpoint.throughput(), endpoint.succeeded(), endpoint.failed(),
+                    endpoint.dropped(), endpoint.p50(), endpoint.p95(), endpoint.p99(), endpoint.p999(), endpoint.max());
+        }
+        System.out.println("Result written to " + options.result());
+    }
+}
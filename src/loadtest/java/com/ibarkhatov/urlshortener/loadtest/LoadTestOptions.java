@@ -0,0 +1,73 @@
+package com.ibarkhatov.urlshortener.loadtest;
+
+import com.ibarkhatov.urlshortener.service.TimeWindows;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line of the load test, {@code --name=value} pairs with the defaults below.
+ *
+ * @param jdbcUrl      Postgres to run against, e.g. the docker-compose db; an embedded throwaway instance when absent
+ * @param rows         number of {@code short_url} rows seeded into an empty database
+ * @param accesses     number of historical clicks seeded, spread uniformly over {@code history}
+ * @param zipfExponent skew of link popularity for seeded clicks and redirects
+ * @param redirectRate redirect arrivals per second
+ * @param createRate   create arrivals per second
+ * @param topRate      {@code /analytics/top} arrivals per second
+ * @param maxInFlight  outstanding requests per endpoint above which new arrivals are counted as dropped
+ */
+public record LoadTestOptions(
+        String jdbcUrl,
+        String username,
+        String password,
+        long rows,
+        long accesses,
+        Duration history,
+        double zipfExponent,
+        double redirectRate,
+        double createRate,
+        double topRate,
+        Duration warmup,
+        Duration duration,
+        int maxInFlight,
+        Path result,
+        long seed
+) {
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                values.remove("jdbc-url"),
+                values.getOrDefault("username", "postgres"),
+                values.getOrDefault("password", "postgres"),
+                Long.parseLong(values.getOrDefault("rows", "1000000")),
+                Long.parseLong(values.getOrDefault("accesses", "5000000")),
+                TimeWindows.parse(values.getOrDefault("history", "7d")),
+                Double.parseDouble(values.getOrDefault("zipf-exponent", "1.1")),
+                Double.parseDouble(values.getOrDefault("redirect-rate", "2000")),
+                Double.parseDouble(values.getOrDefault("create-rate", "100")),
+                Double.parseDouble(values.getOrDefault("top-rate", "10")),
+                TimeWindows.parse(values.getOrDefault("warmup", "30s")),
+                TimeWindows.parse(values.getOrDefault("duration", "2m")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "5000")),
+                Path.of(values.getOrDefault("result", "target/loadtest-result.json")),
+                Long.parseLong(values.getOrDefault("seed", "42")));
+        values.keySet().removeAll(List.of("username", "password", "rows", "accesses", "history",
+                "zipf-exponent", "redirect-rate", "create-rate", "top-rate", "warmup", "duration", "max-in-flight",
+                "result", "seed"));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+        return options;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ibarkhatov.urlshortener.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Machine readable outcome of a run. Latencies are in milliseconds; {@code histogram} is the compressed
+ * HdrHistogram in microseconds, base64 encoded, for merging and comparing runs.
+ */
+record LoadTestResult(
+        Instant startedAt,
+        long links,
+        Duration warmup,
+        Duration duration,
+        List<EndpointResult> endpoints
+) {
+
+    record EndpointResult(
+            String endpoint,
+            double targetRate,
+            double throughput,
+            long succeeded,
+            long failed,
+            long dropped,
+            double mean,
+            double p50,
+            double p95,
+            double p99,
+            double p999,
+            double max,
+            String histogram
+    ) {
+
+        static EndpointResult of(Endpoint endpoint, Duration duration) {
+            Histogram latencies = endpoint.latencies;
+            ByteBuffer buffer = ByteBuffer.allocate(latencies.getNeededByteBufferCapacity());
+            latencies.encodeIntoCompressedByteBuffer(buffer);
+            byte[] histogram = new byte[buffer.position()];
+            buffer.flip().get(histogram);
+            return new EndpointResult(
+                    endpoint.name,
+                    endpoint.ratePerSecond,
+                    endpoint.succeeded.sum() / (duration.toMillis() / 1000.0),
+                    endpoint.succeeded.sum(),
+                    endpoint.failed.sum(),
+                    endpoint.dropped.sum(),
+                    latencies.getMean() / 1000,
+                    millis(latencies, 50),
+                    millis(latencies, 95),
+                    millis(latencies, 99),
+                    millis(latencies, 99.9),
+                    latencies.getMaxValue() / 1000.0,
+                    Base64.getEncoder().encodeToString(histogram));
+        }
+
+        private static double millis(Histogram latencies, double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+}
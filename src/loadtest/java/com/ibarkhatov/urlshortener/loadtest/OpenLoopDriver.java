@@ -0,0 +1,80 @@
+package com.ibarkhatov.urlshortener.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open model load: requests of each endpoint arrive as a Poisson process at its configured rate whether or not
+ * earlier requests have completed. Arrivals during the warm-up are sent but not measured.
+ */
+class OpenLoopDriver {
+    private final HttpClient client;
+    private final int maxInFlight;
+    private final long seed;
+
+    OpenLoopDriver(HttpClient client, int maxInFlight, long seed) {
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+        this.seed = seed;
+    }
+
+    void run(List<Endpoint> endpoints, long warmupNanos, long durationNanos) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        List<Thread> schedulers = new ArrayList<>();
+        for (int i = 0; i < endpoints.size(); i++) {
+            Endpoint endpoint = endpoints.get(i);
+            SplittableRandom random = new SplittableRandom(seed + i);
+            Thread scheduler = new Thread(() -> schedule(endpoint, random, start, measureFrom, end),
+                    "load-" + endpoint.name);
+            scheduler.start();
+            schedulers.add(scheduler);
+        }
+        for (Thread scheduler : schedulers) {
+            scheduler.join();
+        }
+        long drainDeadline = System.nanoTime() + Endpoint.MAX_LATENCY_MICROS * 1000;
+        while (endpoints.stream().anyMatch(e -> e.inFlight.get() > 0) && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void schedule(Endpoint endpoint, SplittableRandom random, long start, long measureFrom, long end) {
+        if (endpoint.ratePerSecond <= 0) {
+            return;
+        }
+        double meanGapNanos = 1_000_000_000 / endpoint.ratePerSecond;
+        long due = start;
+        while (true) {
+            due += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+            if (due >= end) {
+                return;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = due >= measureFrom;
+            if (endpoint.inFlight.get() >= maxInFlight) {
+                if (measured) {
+                    endpoint.dropped.increment();
+                }
+                continue;
+            }
+            long dueNanos = due;
+            endpoint.inFlight.incrementAndGet();
+            client.sendAsync(endpoint.requests.get(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        endpoint.inFlight.decrementAndGet();
+                        if (measured) {
+                            endpoint.record(dueNanos, error == null && response.statusCode() == endpoint.expectedStatus);
+                        }
+                    });
+        }
+    }
+}
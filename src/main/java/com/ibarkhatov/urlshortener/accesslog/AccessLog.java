@@ -0,0 +1,178 @@
+package com.ibarkhatov.urlshortener.accesslog;
+
+import com.ibarkhatov.urlshortener.admission.AdmissionEndpoint;
+import com.ibarkhatov.urlshortener.admission.TokenBucket;
+import com.ibarkhatov.urlshortener.concurrent.RingBuffer;
+import com.ibarkhatov.urlshortener.config.AccessLogProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured access log: one JSON line per request, written to a rotating file by a background thread. The
+ * request thread only samples, takes a token of its endpoint's rate limit and puts the record into a lock-free
+ * ring buffer; when the buffer is full the record is dropped and counted rather than slowing the request down.
+ * Stops after the web server so records of the last requests are still written on a graceful shutdown.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "url-shortener.access-log", name = "enabled", havingValue = "true")
+public class AccessLog implements SmartLifecycle {
+    private static final int DRAIN_BATCH = 1024;
+
+    private final AccessLogProperties properties;
+    private final RingBuffer<AccessLogRecord> buffer;
+    private final Map<AdmissionEndpoint, Sampler> samplers = new EnumMap<>(AdmissionEndpoint.class);
+    private final Counter writtenRecords;
+    private final Counter lostRecords;
+
+    private volatile boolean running;
+    private Thread writerThread;
+    private boolean failing;
+
+    public AccessLog(AccessLogProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.buffer = new RingBuffer<>(properties.bufferSize());
+        for (AdmissionEndpoint endpoint : AdmissionEndpoint.values()) {
+            samplers.put(endpoint, new Sampler(endpoint, properties.endpoints().get(endpoint), meterRegistry));
+        }
+        this.writtenRecords = meterRegistry.counter("urlshortener.accesslog.written");
+        this.lostRecords = meterRegistry.counter("urlshortener.accesslog.lost");
+        Gauge.builder("urlshortener.accesslog.buffered", buffer, RingBuffer::size).register(meterRegistry);
+    }
+
+    public void record(AdmissionEndpoint endpoint, String method, String path, int status, long durationNanos,
+                       String client, String userAgent) {
+        Sampler sampler = samplers.get(endpoint);
+        if (sampler.sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampler.sampleRate) {
+            sampler.sampledOut.increment();
+            return;
+        }
+        if (sampler.bucket != null && sampler.bucket.tryAcquire(System.nanoTime()) > 0) {
+            sampler.rateLimited.increment();
+            return;
+        }
+        AccessLogRecord record = new AccessLogRecord(System.currentTimeMillis(), endpoint, method, path, status,
+                durationNanos, client, userAgent);
+        if (!buffer.offer(record)) {
+            sampler.dropped.increment();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::runWriter, "access-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 4096;
+    }
+
+    private void runWriter() {
+        long idleNanos = properties.idleWait().toNanos();
+        try (AccessLogWriter writer = new AccessLogWriter(properties.path(), properties.maxFileSize().toBytes(),
+                properties.maxHistory())) {
+            while (running) {
+                if (drain(writer) == 0) {
+                    flush(writer);
+                    LockSupport.parkNanos(idleNanos);
+                }
+            }
+            while (drain(writer) > 0) {
+                // the web server has stopped, so the buffer only shrinks
+            }
+            flush(writer);
+        } catch (IOException e) {
+            log.error("Failed to close access log {}", properties.path(), e);
+        }
+    }
+
+    private int drain(AccessLogWriter writer) {
+        return buffer.drain(record -> {
+            try {
+                writer.append(record);
+                writtenRecords.increment();
+                if (failing) {
+                    failing = false;
+                    log.info("Access log {} is writable again", properties.path());
+                }
+            } catch (IOException e) {
+                lostRecords.increment();
+                failed(writer, e);
+            }
+        }, DRAIN_BATCH);
+    }
+
+    private void flush(AccessLogWriter writer) {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            failed(writer, e);
+        }
+    }
+
+    /**
+     * Drops the broken file handle; the next record opens the file again. Only the first of consecutive failures
+     * is logged.
+     */
+    private void failed(AccessLogWriter writer, IOException e) {
+        if (!failing) {
+            failing = true;
+            log.error("Failed to write access log {}", properties.path(), e);
+        }
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+            // already reported
+        }
+    }
+
+    private static final class Sampler {
+        private final double sampleRate;
+        private final TokenBucket bucket;
+        private final Counter sampledOut;
+        private final Counter rateLimited;
+        private final Counter dropped;
+
+        private Sampler(AdmissionEndpoint endpoint, AccessLogProperties.Sampling sampling, MeterRegistry meterRegistry) {
+            this.sampleRate = sampling == null ? 1 : sampling.sampleRate();
+            this.bucket = sampling == null || sampling.rate() <= 0 ? null
+                    : new TokenBucket(sampling.rate(), sampling.burst(), System.nanoTime());
+            String name = endpoint.name().toLowerCase(Locale.ROOT);
+            this.sampledOut = meterRegistry.counter("urlshortener.accesslog.skipped", "endpoint", name, "reason", "sampling");
+            this.rateLimited = meterRegistry.counter("urlshortener.accesslog.skipped", "endpoint", name, "reason", "rate");
+            this.dropped = meterRegistry.counter("urlshortener.accesslog.dropped", "endpoint", name);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.ibarkhatov.urlshortener.accesslog;
+
+import com.ibarkhatov.urlshortener.admission.AdmissionEndpoint;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Hands every request of an {@link AdmissionEndpoint} to the {@link AccessLog} once it completes, including
+ * requests that continue asynchronously. Runs ahead of admission control so rejected requests are logged too.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "url-shortener.access-log", name = "enabled", havingValue = "true")
+public class AccessLogFilter extends OncePerRequestFilter {
+    private final AccessLog accessLog;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        AdmissionEndpoint endpoint = AdmissionEndpoint.of(request.getMethod(), path);
+        if (endpoint == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncRecord(endpoint, path, start, request, response));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                record(endpoint, path, start, request, response);
+            }
+        }
+    }
+
+    private void record(AdmissionEndpoint endpoint, String path, long start, HttpServletRequest request,
+                        HttpServletResponse response) {
+        accessLog.record(endpoint, request.getMethod(), path, response.getStatus(), System.nanoTime() - start,
+                request.getRemoteAddr(), request.getHeader(HttpHeaders.USER_AGENT));
+    }
+
+    private final class AsyncRecord implements AsyncListener {
+        private final AdmissionEndpoint endpoint;
+        private final String path;
+        private final long start;
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+
+        private AsyncRecord(AdmissionEndpoint endpoint, String path, long start, HttpServletRequest request,
+                            HttpServletResponse response) {
+            this.endpoint = endpoint;
+            this.path = path;
+            this.start = start;
+            this.request = request;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(endpoint, path, start, request, response);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.ibarkhatov.urlshortener.accesslog;
+
+import com.ibarkhatov.urlshortener.admission.AdmissionEndpoint;
+
+/**
+ * One request as written to the access log. Only references values the request already holds, so creating it
+ * costs the request thread a single allocation; formatting happens on the writer thread.
+ */
+record AccessLogRecord(
+        long epochMillis,
+        AdmissionEndpoint endpoint,
+        String method,
+        String path,
+        int status,
+        long durationNanos,
+        String client,
+        String userAgent
+) {
+}
@@ -0,0 +1,137 @@
+package com.ibarkhatov.urlshortener.accesslog;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Appends records as JSON lines to a file and rotates it by size. Not thread-safe; owned by the writer thread.
+ */
+final class AccessLogWriter implements Closeable {
+    private final Path path;
+    private final long maxFileSize;
+    private final int maxHistory;
+    private final StringBuilder line = new StringBuilder(256);
+
+    private OutputStream out;
+    private long size;
+
+    AccessLogWriter(Path path, long maxFileSize, int maxHistory) {
+        this.path = path;
+        this.maxFileSize = maxFileSize;
+        this.maxHistory = maxHistory;
+    }
+
+    void append(AccessLogRecord record) throws IOException {
+        if (out == null) {
+            open();
+        } else if (size >= maxFileSize) {
+            rotate();
+        }
+        byte[] bytes = format(record).getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        size += bytes.length;
+    }
+
+    void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            try {
+                out.close();
+            } finally {
+                out = null;
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        out = new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                64 * 1024);
+        size = Files.size(path);
+    }
+
+    /**
+     * Shifts {@code access.log.N} to {@code access.log.N+1}, dropping the oldest, and starts a new file.
+     */
+    private void rotate() throws IOException {
+        close();
+        if (maxHistory > 0) {
+            Files.deleteIfExists(rotated(maxHistory));
+            for (int i = maxHistory - 1; i >= 1; i--) {
+                Path older = rotated(i);
+                if (Files.exists(older)) {
+                    Files.move(older, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(path, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(path);
+        }
+        open();
+    }
+
+    private Path rotated(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    String format(AccessLogRecord record) {
+        line.setLength(0);
+        line.append("{\"time\":\"").append(Instant.ofEpochMilli(record.epochMillis()))
+                .append("\",\"endpoint\":\"").append(record.endpoint().name().toLowerCase(Locale.ROOT))
+                .append("\",\"method\":");
+        appendString(record.method());
+        line.append(",\"path\":");
+        appendString(record.path());
+        line.append(",\"status\":").append(record.status())
+                .append(",\"durationMicros\":").append(record.durationNanos() / 1000)
+                .append(",\"client\":");
+        appendString(record.client());
+        line.append(",\"userAgent\":");
+        appendString(record.userAgent());
+        return line.append("}\n").toString();
+    }
+
+    private void appendString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,174 @@
+package com.ibarkhatov.urlshortener.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ibarkhatov.urlshortener.config.AdmissionControlProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Admission control in front of the controllers. Every request of a configured endpoint first takes a token
+ * from its client's bucket and is rejected with 429 when the bucket is empty. Database-bound endpoints then
+ * take one of {@code maxConcurrent} slots, waiting at most {@code acquireTimeout}, and are shed with 503
+ * otherwise, so excess requests fail fast instead of queueing for a connection. Clients are identified by
+ * remote address; behind a proxy set {@code server.forward-headers-strategy}.
+ */
+@Component
+@Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "url-shortener.admission", name = "enabled", havingValue = "true")
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private final Map<AdmissionEndpoint, Limiter> limiters = new EnumMap<>(AdmissionEndpoint.class);
+    private final Semaphore slots;
+    private final long acquireTimeoutNanos;
+
+    public AdmissionControlFilter(AdmissionControlProperties properties, MeterRegistry meterRegistry) {
+        this.slots = new Semaphore(properties.maxConcurrent());
+        this.acquireTimeoutNanos = properties.acquireTimeout().toNanos();
+        properties.endpoints().forEach((endpoint, limit) -> limiters.put(endpoint, new Limiter(endpoint, limit,
+                properties, meterRegistry)));
+        Gauge.builder("urlshortener.admission.in-flight", slots, s -> properties.maxConcurrent() - s.availablePermits())
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdmissionEndpoint endpoint = AdmissionEndpoint.of(request.getMethod(),
+                request.getRequestURI().substring(request.getContextPath().length()));
+        Limiter limiter = endpoint == null ? null : limiters.get(endpoint);
+        if (limiter == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long waitNanos = limiter.buckets.get(request.getRemoteAddr(), limiter.newBucket).tryAcquire(System.nanoTime());
+        if (waitNanos > 0) {
+            limiter.rateRejections.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+            return;
+        }
+        if (!limiter.dbBound) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        boolean acquired;
+        try {
+            acquired = slots.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            limiter.concurrencyRejections.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1);
+            return;
+        }
+        SlotRelease release = new SlotRelease(slots);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(release);
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * Rejected requests are cheap, so async dispatches of admitted ones are not limited again.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return true;
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    }
+
+    private static final class Limiter {
+        private final Cache<String, TokenBucket> buckets;
+        private final Function<String, TokenBucket> newBucket;
+        private final boolean dbBound;
+        private final Counter rateRejections;
+        private final Counter concurrencyRejections;
+
+        private Limiter(AdmissionEndpoint endpoint, AdmissionControlProperties.EndpointLimit limit,
+                        AdmissionControlProperties properties, MeterRegistry meterRegistry) {
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(properties.maxClients())
+                    .expireAfterAccess(properties.clientIdle())
+                    .build();
+            this.newBucket = client -> new TokenBucket(limit.rate(), limit.burst(), System.nanoTime());
+            this.dbBound = limit.dbBound();
+            String name = endpoint.name().toLowerCase(Locale.ROOT);
+            this.rateRejections = meterRegistry.counter("urlshortener.admission.rejections", "endpoint", name, "reason", "rate");
+            this.concurrencyRejections = meterRegistry.counter("urlshortener.admission.rejections", "endpoint", name, "reason", "concurrency");
+        }
+    }
+
+    /**
+     * Returns the slot when the request completes, once, also for requests that continue asynchronously.
+     */
+    private static final class SlotRelease implements AsyncListener, Runnable {
+        private final Semaphore slots;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private SlotRelease(Semaphore slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public void run() {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
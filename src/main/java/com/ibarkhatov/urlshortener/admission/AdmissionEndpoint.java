@@ -0,0 +1,34 @@
+package com.ibarkhatov.urlshortener.admission;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * Endpoint groups that limits and access log sampling are configured for.
+ */
+public enum AdmissionEndpoint {
+    CREATE,
+    DELETE,
+    LIST,
+    REDIRECT,
+    ANALYTICS;
+
+    /**
+     * The group of a request, or null for requests that are neither limited nor logged, such as actuator endpoints.
+     */
+    public static AdmissionEndpoint of(String method, String path) {
+        if (path.startsWith("/analytics/")) {
+            return ANALYTICS;
+        }
+        if (path.equals("/urls")) {
+            return HttpMethod.GET.matches(method) ? LIST : HttpMethod.POST.matches(method) ? CREATE : null;
+        }
+        if (path.startsWith("/urls/")) {
+            return HttpMethod.POST.matches(method) ? CREATE : HttpMethod.DELETE.matches(method) ? DELETE : null;
+        }
+        if (HttpMethod.GET.matches(method) && path.length() > 1 && path.indexOf('/', 1) < 0
+                && !path.equals("/actuator")) {
+            return REDIRECT;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,154 @@
+package com.ibarkhatov.urlshortener.bloom;
+
+import com.ibarkhatov.urlshortener.config.ShortCodeBloomFilterProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.repository.ShortUrlJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Bloom filter of all short codes, so redirects of codes that never existed are answered without the database.
+ * Codes created on this node are added right away, codes created on other nodes by a sync every
+ * {@code syncInterval} that reads the rows created since the previous sync, with {@code syncGrace} of overlap.
+ * Deleted codes stay in the filter until the next full rebuild; they only cost a database lookup.
+ * Until the first build completes every code passes. Builds and syncs read the shards one after another.
+ * <p>
+ * Syncs find new rows by {@code created_at}, so rows inserted with a {@code created_at} older than the previous
+ * sync, such as backdated bulk loads written straight to the database, are only picked up by the next rebuild;
+ * call {@link #rebuild()} after such a load.
+ */
+@Component
+@Slf4j
+public class ShortCodeBloomFilter implements SchedulingConfigurer {
+    private final ShortUrlJdbcRepository repository;
+    private final Shards shards;
+    private final ShortCodeBloomFilterProperties properties;
+    private final Counter rejections;
+    private final Counter falsePositives;
+
+    private volatile BloomFilter filter;
+    /**
+     * Filter being rebuilt; receives the codes created on this node meanwhile.
+     */
+    private volatile BloomFilter building;
+    private Instant lastSync;
+    private Instant lastRebuild;
+
+    public ShortCodeBloomFilter(ShortUrlJdbcRepository repository, Shards shards,
+                                ShortCodeBloomFilterProperties properties, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.shards = shards;
+        this.properties = properties;
+        this.rejections = meterRegistry.counter("urlshortener.bloom.rejections");
+        this.falsePositives = meterRegistry.counter("urlshortener.bloom.false-positives");
+        gauge("urlshortener.bloom.size", "bytes", BloomFilter::sizeInBytes, meterRegistry);
+        gauge("urlshortener.bloom.insertions", null, BloomFilter::insertions, meterRegistry);
+        gauge("urlshortener.bloom.false-positive-rate", null, BloomFilter::expectedFalsePositiveRate, meterRegistry);
+        Gauge.builder("urlshortener.bloom.false-positive-rate.target", properties, ShortCodeBloomFilterProperties::falsePositiveRate)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        if (properties.enabled()) {
+            registrar.addFixedDelayTask(this::refresh, properties.syncInterval());
+        }
+    }
+
+    /**
+     * False only for codes that were never created, or were created on another node less than
+     * {@code syncInterval} ago.
+     */
+    public boolean mightContain(String shortCode) {
+        BloomFilter current = filter;
+        if (current == null || current.mightContain(shortCode)) {
+            return true;
+        }
+        rejections.increment();
+        return false;
+    }
+
+    public void add(String shortCode) {
+        BloomFilter next = building;
+        BloomFilter current = filter;
+        if (current != null) {
+            current.add(shortCode);
+        }
+        if (next != null) {
+            next.add(shortCode);
+        }
+    }
+
+    /**
+     * A code passed the filter but does not exist, either a false positive or a deleted link.
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    synchronized void refresh() {
+        try {
+            if (filter == null || Duration.between(lastRebuild, Instant.now()).compareTo(properties.rebuildInterval()) >= 0) {
+                build();
+            } else {
+                Instant start = Instant.now();
+                Instant since = lastSync.minus(properties.syncGrace());
+                shards.forEach(shard -> repository.forEachShortCodeCreatedSince(since, filter::add));
+                lastSync = start;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Short code Bloom filter refresh failed", e);
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * Builds the filter from all rows now instead of at the next {@code rebuildInterval}.
+     */
+    public synchronized void rebuild() {
+        try {
+            build();
+        } finally {
+            building = null;
+        }
+    }
+
+    private void build() {
+        Instant start = Instant.now();
+        AtomicLong count = new AtomicLong();
+        shards.forEach(shard -> count.addAndGet(repository.estimateCount()));
+        long expected = Math.max(properties.expectedInsertions(), count.get() * 5 / 4);
+        BloomFilter next = new BloomFilter(expected, properties.falsePositiveRate());
+        building = next;
+        shards.forEach(shard -> {
+            repository.forEachShortCode(properties.pageSize(), next::add);
+            repository.forEachShortCodeCreatedSince(start.minus(properties.syncGrace()), next::add);
+        });
+        filter = next;
+        lastSync = start;
+        lastRebuild = start;
+        log.info("Short code Bloom filter built: codes={}, bytes={}, hashes={}, expectedFalsePositiveRate={}, took={}",
+                next.insertions(), next.sizeInBytes(), next.hashes(), next.expectedFalsePositiveRate(),
+                Duration.between(start, Instant.now()));
+    }
+
+    private void gauge(String name, String baseUnit, ToDoubleFunction<BloomFilter> value, MeterRegistry meterRegistry) {
+        Gauge.builder(name, this, self -> {
+                    BloomFilter current = self.filter;
+                    return current == null ? Double.NaN : value.applyAsDouble(current);
+                })
+                .baseUnit(baseUnit)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,20 @@
+package com.ibarkhatov.urlshortener.cache;
+
+import java.time.Instant;
+
+/**
+ * @param expiresAt when the link stops redirecting, {@code null} if never
+ */
+public record CachedRedirect(
+        Long id,
+        String originalUrl,
+        Instant expiresAt
+) {
+    public CachedRedirect(Long id, String originalUrl) {
+        this(id, originalUrl, null);
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+}
@@ -0,0 +1,43 @@
+package com.ibarkhatov.urlshortener.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ibarkhatov.urlshortener.config.RedirectCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded shortCode to originalUrl cache. The mapping never changes after creation, so entries only leave
+ * the cache on eviction or when the link is deleted. Hit, miss and eviction counters are published as
+ * {@code cache.*} meters tagged with {@code cache=redirect}.
+ */
+@Component
+public class RedirectCache {
+    private final Cache<String, CachedRedirect> cache;
+
+    public RedirectCache(RedirectCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.expireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "redirect");
+    }
+
+    public CachedRedirect get(String shortCode) {
+        return cache.getIfPresent(shortCode);
+    }
+
+    public void put(String shortCode, CachedRedirect redirect) {
+        cache.put(shortCode, redirect);
+    }
+
+    public void evict(String shortCode) {
+        cache.invalidate(shortCode);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+}
@@ -0,0 +1,44 @@
+package com.ibarkhatov.urlshortener.cache;
+
+import com.ibarkhatov.urlshortener.config.RedirectCacheProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.repository.ShortUrlRepository;
+import com.ibarkhatov.urlshortener.repository.projection.ShortUrlClickView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RedirectCacheWarmer {
+    private final ShortUrlRepository repository;
+    private final RedirectCache cache;
+    private final RedirectCacheProperties properties;
+    private final Shards shards;
+
+    /**
+     * Links are spread evenly over the shards, so each shard contributes an equal share of the most clicked ones.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (properties.warmUpSize() <= 0) {
+            return;
+        }
+        try {
+            int perShard = (properties.warmUpSize() + shards.count() - 1) / shards.count();
+            List<ShortUrlClickView> top = shards.gather(shard -> repository.findTopCacheable(perShard)).stream()
+                    .flatMap(List::stream)
+                    .toList();
+            top.forEach(view -> cache.put(view.getShortCode(),
+                    new CachedRedirect(view.getId(), view.getOriginalUrl(), view.getExpiresAt())));
+            log.info("Redirect cache warmed up: entries={}", top.size());
+        } catch (RuntimeException e) {
+            log.warn("Redirect cache warm-up failed, starting cold", e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.ibarkhatov.urlshortener.codec;
+
+import com.ibarkhatov.urlshortener.config.ShortCodeProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Reversible mapping between ids and short codes. New codes are base62 and at most 7 characters for ids below
+ * 2^40; with obfuscation the id is first permuted by a keyed Feistel network within its size class (below 2^24,
+ * 2^32 or 2^40), so codes stay short while consecutive ids get unrelated codes. Ids of 2^40 and above keep their
+ * upper bits, which carry the shard, and only the lower 40 bits are permuted. Codes of 11 characters are the
+ * legacy URL-safe Base64 of the 8 id bytes and are still decoded.
+ * <p>
+ * Decoding does not check that a code is canonical (e.g. base62 with leading zeros); the lookup must compare
+ * the stored code as well.
+ */
+@Component
+public class ShortCodeCodec {
+    public static final long INVALID = -1;
+
+    private static final char[] BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final char[] BASE64_URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final byte[] BASE62_VALUES = values(BASE62);
+    private static final byte[] BASE64_URL_VALUES = values(BASE64_URL);
+    private static final int LEGACY_LENGTH = 11;
+    private static final int MAX_BASE62_LENGTH = 10;
+    private static final int[] DOMAIN_BITS = {24, 32, 40};
+    private static final int PERMUTED_BITS = 40;
+    private static final long PERMUTED_MASK = (1L << PERMUTED_BITS) - 1;
+    /**
+     * 62^10 - 1; the last block of 2^40 ids is only partially encodable and is left unpermuted.
+     */
+    private static final long MAX_BASE62_VALUE = 839_299_365_868_340_223L;
+    private static final int ROUNDS = 4;
+
+    private final boolean obfuscate;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public ShortCodeCodec(ShortCodeProperties properties) {
+        this.obfuscate = properties.obfuscate();
+        long key = obfuscate ? properties.key() : 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            roundKeys[i] = mix(key + i * 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    public String encode(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id: " + id);
+        }
+        long value = obfuscate ? permute(id) : id;
+        char[] chars = new char[MAX_BASE62_LENGTH + 1];
+        int pos = chars.length;
+        do {
+            chars[--pos] = BASE62[(int) (value % 62)];
+            value /= 62;
+        } while (value > 0);
+        if (chars.length - pos > MAX_BASE62_LENGTH) {
+            throw new IllegalArgumentException("Id out of the short code range: " + id);
+        }
+        return new String(chars, pos, chars.length - pos);
+    }
+
+    /**
+     * @return the id, or {@link #INVALID} if the string cannot be a short code
+     */
+    public long decode(String code) {
+        int length = code.length();
+        if (length == LEGACY_LENGTH) {
+            return decodeLegacy(code);
+        }
+        if (length == 0 || length > MAX_BASE62_LENGTH) {
+            return INVALID;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = digit(BASE62_VALUES, code.charAt(i));
+            if (digit < 0) {
+                return INVALID;
+            }
+            value = value * 62 + digit;
+        }
+        return obfuscate ? unpermute(value) : value;
+    }
+
+    /**
+     * 11 characters carry 66 bits; the 2 lowest are padding and must be zero.
+     */
+    private static long decodeLegacy(String code) {
+        long value = 0;
+        for (int i = 0; i < LEGACY_LENGTH - 1; i++) {
+            int digit = digit(BASE64_URL_VALUES, code.charAt(i));
+            if (digit < 0) {
+                return INVALID;
+            }
+            value = value << 6 | digit;
+        }
+        int last = digit(BASE64_URL_VALUES, code.charAt(LEGACY_LENGTH - 1));
+        if (last < 0 || (last & 0b11) != 0) {
+            return INVALID;
+        }
+        value = value << 4 | last >>> 2;
+        return value < 0 ? INVALID : value;
+    }
+
+    /**
+     * Cycle walking keeps every size class mapped onto itself, so codes never move to a longer class.
+     */
+    private long permute(long id) {
+        if (id > PERMUTED_MASK && (id | PERMUTED_MASK) <= MAX_BASE62_VALUE) {
+            return id & ~PERMUTED_MASK | feistel(id & PERMUTED_MASK, PERMUTED_BITS);
+        }
+        long lower = 0;
+        for (int bits : DOMAIN_BITS) {
+            if (id < 1L << bits) {
+                long value = id;
+                do {
+                    value = feistel(value, bits);
+                } while (value < lower);
+                return value;
+            }
+            lower = 1L << bits;
+        }
+        return id;
+    }
+
+    private long unpermute(long value) {
+        if (value > PERMUTED_MASK && (value | PERMUTED_MASK) <= MAX_BASE62_VALUE) {
+            return value & ~PERMUTED_MASK | inverseFeistel(value & PERMUTED_MASK, PERMUTED_BITS);
+        }
+        long lower = 0;
+        for (int bits : DOMAIN_BITS) {
+            if (value < 1L << bits) {
+                long id = value;
+                do {
+                    id = inverseFeistel(id, bits);
+                } while (id < lower);
+                return id;
+            }
+            lower = 1L << bits;
+        }
+        return value;
+    }
+
+    private long feistel(long value, int bits) {
+        int half = bits / 2;
+        long mask = (1L << half) - 1;
+        long left = value >>> half;
+        long right = value & mask;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ mix(right ^ roundKeys[i]) & mask;
+            left = right;
+            right = next;
+        }
+        return left << half | right;
+    }
+
+    private long inverseFeistel(long value, int bits) {
+        int half = bits / 2;
+        long mask = (1L << half) - 1;
+        long left = value >>> half;
+        long right = value & mask;
+        for (int i = ROUNDS - 1; i >= 0; i--) {
+            long previous = right ^ mix(left ^ roundKeys[i]) & mask;
+            right = left;
+            left = previous;
+        }
+        return left << half | right;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int digit(byte[] values, char c) {
+        return c < values.length ? values[c] : -1;
+    }
+
+    private static byte[] values(char[] alphabet) {
+        byte[] values = new byte[128];
+        Arrays.fill(values, (byte) -1);
+        for (int i = 0; i < alphabet.length; i++) {
+            values[alphabet[i]] = (byte) i;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ibarkhatov.urlshortener.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded ring buffer for many producers and a single consumer. A producer claims a position with one
+ * compare-and-set on the tail and publishes its element into the slot; the consumer takes published elements in
+ * order and frees slots by advancing the head. Neither side locks or blocks: a full buffer rejects the element.
+ */
+public final class RingBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    public RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public int size() {
+        return (int) Math.max(tail.get() - head, 0);
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element) {
+        long position;
+        do {
+            position = tail.get();
+            if (position - head > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+        slots.setRelease((int) position & mask, element);
+        return true;
+    }
+
+    /**
+     * Hands up to {@code max} elements to the sink in the order they were claimed. Stops early at a position
+     * that is claimed but not yet published. Must only be called from the consumer thread.
+     *
+     * @return number of elements drained
+     */
+    public int drain(Consumer<? super E> sink, int max) {
+        long position = head;
+        int drained = 0;
+        try {
+            while (drained < max) {
+                int slot = (int) position & mask;
+                E element = slots.getAcquire(slot);
+                if (element == null) {
+                    break;
+                }
+                slots.setPlain(slot, null);
+                position++;
+                drained++;
+                sink.accept(element);
+            }
+        } finally {
+            head = position;
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,14 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * @param slice span of {@code accessed_at} read by one COPY statement; bounds how long a snapshot is held
+ */
+@ConfigurationProperties(prefix = "url-shortener.export")
+public record AccessExportProperties(
+        Duration slice
+) {
+}
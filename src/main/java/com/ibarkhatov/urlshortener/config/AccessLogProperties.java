@@ -0,0 +1,43 @@
+package com.ibarkhatov.urlshortener.config;
+
+import com.ibarkhatov.urlshortener.admission.AdmissionEndpoint;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * @param enabled     whether requests are written to the access log at all
+ * @param path        current log file; rotated files get the suffixes {@code .1} (newest) to {@code .maxHistory}
+ * @param maxFileSize size at which the current file is rotated
+ * @param maxHistory  rotated files kept
+ * @param bufferSize  records waiting for the writer, rounded up to a power of two; requests finding it full are
+ *                    counted as dropped instead of waiting
+ * @param idleWait    how long the writer sleeps when the buffer is empty; bounds how late a record reaches the file
+ * @param endpoints   per endpoint sampling; endpoints without an entry log every request
+ */
+@ConfigurationProperties(prefix = "url-shortener.access-log")
+public record AccessLogProperties(
+        boolean enabled,
+        Path path,
+        DataSize maxFileSize,
+        int maxHistory,
+        int bufferSize,
+        Duration idleWait,
+        Map<AdmissionEndpoint, Sampling> endpoints
+) {
+
+    /**
+     * @param sampleRate fraction of requests logged, from 0 to 1
+     * @param rate       sampled requests logged per second at most, across all clients; 0 for no limit
+     * @param burst      sampled requests logged at once after a quiet period
+     */
+    public record Sampling(
+            double sampleRate,
+            double rate,
+            int burst
+    ) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Daily partitions of {@code short_url_access}.
+ *
+ * @param premakeDays       number of future days that always have a partition
+ * @param retention         partitions whose whole day is older than this are dropped
+ * @param detachLockTimeout longest wait for the lock detaching an expired partition, during which clicks queue
+ */
+@ConfigurationProperties(prefix = "url-shortener.access-partitions")
+public record AccessPartitionProperties(
+        int premakeDays,
+        Duration retention,
+        Duration detachLockTimeout
+) {
+}
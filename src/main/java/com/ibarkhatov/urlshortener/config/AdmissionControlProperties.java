@@ -0,0 +1,40 @@
+package com.ibarkhatov.urlshortener.config;
+
+import com.ibarkhatov.urlshortener.admission.AdmissionEndpoint;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * @param enabled        whether requests pass admission control at all. Clients are told apart by remote address,
+ *                       so behind a proxy or load balancer enable it only together with
+ *                       {@code server.forward-headers-strategy}; otherwise every request shares the proxy's limit
+ * @param maxClients     clients tracked per endpoint; the least recently seen ones are forgotten first
+ * @param clientIdle     a client not seen for this long is forgotten, which is the same as a full bucket
+ * @param maxConcurrent  database-bound requests served at once; keep it near the connection pool size
+ * @param acquireTimeout how long a database-bound request waits for a slot before it is shed with 503
+ * @param endpoints      per client limits; endpoints without an entry are not limited
+ */
+@ConfigurationProperties(prefix = "url-shortener.admission")
+public record AdmissionControlProperties(
+        boolean enabled,
+        long maxClients,
+        Duration clientIdle,
+        int maxConcurrent,
+        Duration acquireTimeout,
+        Map<AdmissionEndpoint, EndpointLimit> endpoints
+) {
+
+    /**
+     * @param rate    sustained requests per second of one client
+     * @param burst   requests one client may send at once after being idle
+     * @param dbBound whether the endpoint also takes one of the {@code maxConcurrent} slots
+     */
+    public record EndpointLimit(
+            double rate,
+            int burst,
+            boolean dbBound
+    ) {
+    }
+}
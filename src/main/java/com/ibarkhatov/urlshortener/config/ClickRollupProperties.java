@@ -0,0 +1,19 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Retention of the click rollups. Hour buckets are kept as long as the access partitions.
+ *
+ * @param minuteRetention minute buckets older than this are deleted; windows reaching further back read the
+ *                        partial hour at their start from raw access rows. Must be at least an hour
+ * @param rowsPerBatch    maximum number of buckets deleted per transaction
+ */
+@ConfigurationProperties(prefix = "url-shortener.click-rollups")
+public record ClickRollupProperties(
+        Duration minuteRetention,
+        int rowsPerBatch
+) {
+}
@@ -0,0 +1,24 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Buffering of redirect clicks before they are written to {@code short_url} and {@code short_url_access}.
+ *
+ * @param queueCapacity maximum number of clicks buffered in memory
+ * @param batchSize     number of clicks that triggers a flush before {@code flushInterval} elapses
+ * @param flushInterval maximum time a click waits in the buffer
+ * @param offerTimeout  how long a redirect waits for free buffer space before writing its click synchronously
+ * @param maxRetained   maximum number of clicks of failed flushes kept for the next flush; the rest are lost
+ */
+@ConfigurationProperties(prefix = "url-shortener.click-tracking")
+public record ClickTrackingProperties(
+        int queueCapacity,
+        int batchSize,
+        Duration flushInterval,
+        Duration offerTimeout,
+        int maxRetained
+) {
+}
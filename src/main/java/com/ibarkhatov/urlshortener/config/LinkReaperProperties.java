@@ -0,0 +1,28 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Background reclamation of expired and deleted links.
+ *
+ * @param enabled          whether this node runs the reaper; several nodes share the work without coordination
+ * @param interval         pause between runs
+ * @param grace            deleted links are kept this long, so clicks still buffered on other nodes land first
+ * @param linksPerBatch    links locked by one batch
+ * @param rowsPerBatch     history rows deleted by one batch; a link is removed by the batch that finds its history empty
+ * @param maxBatchesPerRun upper bound of batches per run, so a backlog is worked off over several runs
+ * @param batchPause       sleep between batches, which leaves room to redirects, autovacuum and replicas
+ */
+@ConfigurationProperties(prefix = "url-shortener.reaper")
+public record LinkReaperProperties(
+        boolean enabled,
+        Duration interval,
+        Duration grace,
+        int linksPerBatch,
+        int rowsPerBatch,
+        int maxBatchesPerRun,
+        Duration batchPause
+) {
+}
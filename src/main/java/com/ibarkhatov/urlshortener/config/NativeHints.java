@@ -0,0 +1,36 @@
+package com.ibarkhatov.urlshortener.config;
+
+import com.ibarkhatov.urlshortener.dto.BatchItemResponse;
+import com.ibarkhatov.urlshortener.dto.CreateUrlRequest;
+import com.ibarkhatov.urlshortener.dto.UrlResponse;
+import com.ibarkhatov.urlshortener.repository.projection.ShortUrlClickView;
+import com.ibarkhatov.urlshortener.repository.projection.TopItemView;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.data.projection.TargetAware;
+
+/**
+ * Runtime hints AOT cannot infer for a native image:
+ * <ul>
+ *     <li>JDK proxies Spring Data creates for the interface projections of the native queries,</li>
+ *     <li>DTOs (de)serialized with the {@code ObjectMapper} directly, outside of controller signatures,</li>
+ *     <li>Liquibase changelogs, read as classpath resources.</li>
+ * </ul>
+ * The MapStruct mappers are generated at compile time as regular Spring beans and need no hints.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> projection : new Class<?>[]{TopItemView.class, ShortUrlClickView.class}) {
+            hints.proxies().registerJdkProxy(AopProxyUtils.completeJdkProxyInterfaces(projection, TargetAware.class));
+            hints.reflection().registerType(projection, MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                CreateUrlRequest.class, UrlResponse.class, BatchItemResponse.class);
+        hints.resources().registerPattern("db/changelog/**");
+    }
+}
@@ -0,0 +1,16 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Connection settings of the {@code reactive} profile; credentials are shared with {@code spring.datasource}.
+ *
+ * @param r2dbcUrl R2DBC url of the same database the JDBC datasource points to
+ * @param poolSize maximum number of pooled R2DBC connections
+ */
+@ConfigurationProperties(prefix = "url-shortener.reactive")
+public record ReactiveProperties(
+        String r2dbcUrl,
+        int poolSize
+) {
+}
@@ -0,0 +1,27 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Streaming replicas serving read-only transactions. Credentials are the ones of {@code spring.datasource}.
+ *
+ * @param enabled           whether read-only transactions are routed to the replicas at all
+ * @param urls              JDBC URLs of the replicas, used round robin
+ * @param maxLag            replay lag above which a replica is skipped, i.e. how stale a read may be
+ * @param checkInterval     how often replica reachability and lag are checked
+ * @param poolSize          connections per replica
+ * @param connectionTimeout how long a read waits for a replica connection before falling back to the primary
+ */
+@ConfigurationProperties(prefix = "url-shortener.replicas")
+public record ReadReplicaProperties(
+        boolean enabled,
+        List<String> urls,
+        Duration maxLag,
+        Duration checkInterval,
+        int poolSize,
+        Duration connectionTimeout
+) {
+}
@@ -0,0 +1,20 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Sizing of the in-process shortCode to originalUrl cache used by the redirect path.
+ *
+ * @param maximumSize      upper bound of cached entries, least recently used ones are evicted first
+ * @param expireAfterWrite how long an entry lives; also bounds how long a link deleted on another node keeps redirecting
+ * @param warmUpSize       number of most clicked links loaded into the cache on startup
+ */
+@ConfigurationProperties(prefix = "url-shortener.redirect-cache")
+public record RedirectCacheProperties(
+        long maximumSize,
+        Duration expireAfterWrite,
+        int warmUpSize
+) {
+}
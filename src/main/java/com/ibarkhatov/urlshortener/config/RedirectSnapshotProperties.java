@@ -0,0 +1,26 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * @param enabled            whether redirects missing from the cache are looked up in the memory-mapped snapshot
+ * @param path               snapshot file, local to the node
+ * @param interval           how often the snapshot is rewritten
+ * @param deleteSyncInterval how often links deleted on other nodes are looked up and masked; bounds how long such
+ *                           a link keeps redirecting from the snapshot
+ * @param maxAge             older snapshots are ignored on startup and rewritten right away
+ * @param pageSize           rows per keyset page while writing
+ */
+@ConfigurationProperties(prefix = "url-shortener.redirect-snapshot")
+public record RedirectSnapshotProperties(
+        boolean enabled,
+        Path path,
+        Duration interval,
+        Duration deleteSyncInterval,
+        Duration maxAge,
+        int pageSize
+) {
+}
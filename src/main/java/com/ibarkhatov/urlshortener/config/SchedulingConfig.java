@@ -0,0 +1,14 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Background jobs run on serving nodes only; the one-shot {@code migrate} run exits right after Liquibase.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableScheduling
+@Profile("!migrate")
+public class SchedulingConfig {
+}
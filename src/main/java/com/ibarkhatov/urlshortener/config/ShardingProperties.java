@@ -0,0 +1,28 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Postgres instances {@code short_url} and its history are split across. Shard 0 is {@code spring.datasource},
+ * the others use its credentials. A shard's position is part of the ids of its links, so shards may only be
+ * appended. Cannot be combined with read replicas; the reactive profile refuses to start
+ * with more than one shard, since it only serves shard 0.
+ *
+ * @param enabled           whether links are spread over the shards at all
+ * @param urls              JDBC URLs of shards 1 and up
+ * @param poolSize          connections per additional shard
+ * @param connectionTimeout how long a statement waits for a connection of an additional shard
+ * @param gatherThreads     threads running the per-shard queries of listings and top-N in parallel
+ */
+@ConfigurationProperties(prefix = "url-shortener.sharding")
+public record ShardingProperties(
+        boolean enabled,
+        List<String> urls,
+        int poolSize,
+        Duration connectionTimeout,
+        int gatherThreads
+) {
+}
@@ -0,0 +1,27 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * @param enabled            whether redirects of codes missing from the filter are answered without the database
+ * @param expectedInsertions minimum number of codes the filter is sized for; it grows with the table on rebuild
+ * @param falsePositiveRate  target share of unknown codes still sent to the database; memory is about
+ *                           {@code 1.44 * log2(1 / rate)} bits per code
+ * @param syncInterval       how often codes created on other nodes are added
+ * @param syncGrace          overlap of consecutive syncs, covering transaction duration and clock skew between nodes
+ * @param rebuildInterval    how often the filter is rebuilt from scratch, which is what drops deleted codes
+ * @param pageSize           rows per query while rebuilding
+ */
+@ConfigurationProperties(prefix = "url-shortener.bloom-filter")
+public record ShortCodeBloomFilterProperties(
+        boolean enabled,
+        long expectedInsertions,
+        double falsePositiveRate,
+        Duration syncInterval,
+        Duration syncGrace,
+        Duration rebuildInterval,
+        int pageSize
+) {
+}
@@ -0,0 +1,24 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Shape of new short codes. Both values are part of every code handed out: changing either one makes existing
+ * base62 codes resolve to 404.
+ *
+ * @param obfuscate whether ids are permuted before encoding so consecutive links don't get consecutive codes
+ * @param key       secret of the permutation, required with {@code obfuscate}; there is no default so that every
+ *                  deployment picks its own
+ */
+@ConfigurationProperties(prefix = "url-shortener.short-code")
+public record ShortCodeProperties(
+        boolean obfuscate,
+        Long key
+) {
+
+    public ShortCodeProperties {
+        if (obfuscate && key == null) {
+            throw new IllegalArgumentException("url-shortener.short-code.key (SHORT_CODE_KEY) must be set when short codes are obfuscated");
+        }
+    }
+}
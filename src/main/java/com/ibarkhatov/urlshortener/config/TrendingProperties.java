@@ -0,0 +1,16 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @param enabled    whether redirects feed the in-memory trending summaries and {@code /analytics/top} may use them
+ * @param capacity   counters per summary slot; a reported count is off by at most clicks-in-window / capacity
+ * @param bufferSize clicks waiting to be added to the summaries; clicks beyond it are dropped
+ */
+@ConfigurationProperties(prefix = "url-shortener.trending")
+public record TrendingProperties(
+        boolean enabled,
+        int capacity,
+        int bufferSize
+) {
+}
@@ -0,0 +1,26 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * @param enabled       whether redirects record visitors; the endpoints keep answering from stored sketches
+ * @param precision     HyperLogLog precision; a sketch takes up to {@code 2^precision} bytes, links with few
+ *                      visitors far less, and estimates with
+ *                      a standard error of {@code 1.04 / sqrt(2^precision)}; stored sketches only merge with
+ *                      sketches of the same precision
+ * @param flushInterval how often the sketches collected on this node are merged into the stored ones
+ * @param batchSize     sketches per merge statement
+ * @param maxPending    link days collected in memory at most; visits of further link days, and sketches that
+ *                      failed to flush while memory is full, are dropped and counted
+ */
+@ConfigurationProperties(prefix = "url-shortener.uniques")
+public record UniqueVisitorProperties(
+        boolean enabled,
+        int precision,
+        Duration flushInterval,
+        int batchSize,
+        int maxPending
+) {
+}
@@ -0,0 +1,13 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @param maxSize maximum number of urls in one {@code POST /urls/batch}; larger uploads go through
+ *                {@code /urls/import}, which streams and commits them in chunks
+ */
+@ConfigurationProperties(prefix = "url-shortener.batch")
+public record UrlBatchProperties(
+        int maxSize
+) {
+}
@@ -0,0 +1,14 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @param enabled whether creating a link without expiry or click limit, also through {@code POST /urls/batch} and
+ *                the import, returns the existing link for a URL created before in this mode instead of inserting
+ *                another row
+ */
+@ConfigurationProperties(prefix = "url-shortener.dedup")
+public record UrlDedupProperties(
+        boolean enabled
+) {
+}
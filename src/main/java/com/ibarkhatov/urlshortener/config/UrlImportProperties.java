@@ -0,0 +1,12 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @param chunkSize number of lines of an import that are validated, inserted and committed together
+ */
+@ConfigurationProperties(prefix = "url-shortener.import")
+public record UrlImportProperties(
+        int chunkSize
+) {
+}
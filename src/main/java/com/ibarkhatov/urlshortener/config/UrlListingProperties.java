@@ -0,0 +1,16 @@
+package com.ibarkhatov.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @param defaultLimit page size of {@code GET /urls} when no limit is given
+ * @param maxLimit     largest accepted page size
+ * @param fetchSize    rows fetched per round trip by the NDJSON stream of {@code GET /urls}
+ */
+@ConfigurationProperties(prefix = "url-shortener.listing")
+public record UrlListingProperties(
+        int defaultLimit,
+        int maxLimit,
+        int fetchSize
+) {
+}
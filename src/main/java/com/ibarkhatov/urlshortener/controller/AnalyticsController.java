@@ -1,33 +1,145 @@
 package com.ibarkhatov.urlshortener.controller;
 
+import com.ibarkhatov.urlshortener.dto.RollupBackfillResponse;
+import com.ibarkhatov.urlshortener.dto.RollupCheckResponse;
 import com.ibarkhatov.urlshortener.dto.TopUrlResponse;
+import com.ibarkhatov.urlshortener.dto.UniqueVisitorsResponse;
+import com.ibarkhatov.urlshortener.metrics.UrlShortenerMetrics;
+import com.ibarkhatov.urlshortener.service.AccessExportFormat;
+import com.ibarkhatov.urlshortener.service.AccessExportService;
+import com.ibarkhatov.urlshortener.service.ClickRollupService;
+import com.ibarkhatov.urlshortener.service.UniqueVisitorService;
 import com.ibarkhatov.urlshortener.service.UrlShorteningService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping(value = "/analytics")
 @RequiredArgsConstructor
 @Slf4j
 public class AnalyticsController {
+    public static final String ESTIMATE_HEADER = "X-Top-Estimate";
 
     private final UrlShorteningService service;
+    private final ClickRollupService rollupService;
+    private final AccessExportService exportService;
+    private final UniqueVisitorService uniqueVisitorService;
+    private final UrlShortenerMetrics metrics;
 
+    /**
+     * Top links of all time or of the window, counted over all shards. With {@code estimate} a window of up to
+     * 24h is answered from the in-memory summaries of the node serving the request instead: they only count the
+     * clicks that node redirected, so behind a load balancer they hold its share of the traffic. Such answers
+     * carry {@value #ESTIMATE_HEADER}; a node that has not been tracking for the whole window falls back to the
+     * database.
+     */
     @GetMapping("/top")
     public ResponseEntity<List<TopUrlResponse>> top(
             @RequestParam(name = "window", required = false) String window,
+            @RequestParam(name = "limit", required = false, defaultValue = "10") int limit,
+            @RequestParam(name = "estimate", required = false, defaultValue = "false") boolean estimate,
+            @RequestParam(name = "uniques", required = false, defaultValue = "false") boolean uniques
+    ) {
+        log.debug("Analytics top: window={}, limit={}, estimate={}, uniques={}", window, limit, estimate, uniques);
+        Optional<List<TopUrlResponse>> estimated = estimate ? service.estimateTopByWindow(window, limit) : Optional.empty();
+        List<TopUrlResponse> top = estimated.orElseGet(() -> metrics.top().record(() -> service.getTopByWindow(window, limit)));
+        List<TopUrlResponse> result = uniques ? uniqueVisitorService.withUniqueVisitors(top, window) : top;
+        log.debug("Analytics top size={}", result.size());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (estimated.isPresent()) {
+            response.header(ESTIMATE_HEADER, "node-local");
+        }
+        return response.body(result);
+    }
+
+    @GetMapping("/{shortCode}/uniques")
+    public ResponseEntity<UniqueVisitorsResponse> uniques(
+            @PathVariable String shortCode,
+            @RequestParam(name = "window", required = false, defaultValue = "7d") String window
+    ) {
+        log.debug("Unique visitors: code={}, window={}", shortCode, window);
+        return uniqueVisitorService.uniques(shortCode, window)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Streams the accesses in {@code [from, to)}, gzip-compressed on the fly when the client accepts it.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(name = "from") Instant from,
+            @RequestParam(name = "to", required = false) Instant to,
+            @RequestParam(name = "format", required = false, defaultValue = "csv") String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        Instant end = to == null ? Instant.now() : to;
+        log.info("Export accesses: from={}, to={}, format={}", from, end, format);
+        AccessExportFormat exportFormat;
+        try {
+            exportFormat = AccessExportFormat.parse(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!from.isBefore(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 1 << 16);
+                exportService.export(from, end, exportFormat, compressed);
+                compressed.finish();
+            } else {
+                exportService.export(from, end, exportFormat, out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("short_url_access." + exportFormat.extension())
+                        .build()
+                        .toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @PostMapping("/rollups/backfill")
+    public ResponseEntity<RollupBackfillResponse> backfillRollups(
+            @RequestParam(name = "from") Instant from,
+            @RequestParam(name = "to", required = false) Instant to
+    ) {
+        log.info("Backfill rollups: from={}, to={}", from, to);
+        return ResponseEntity.ok(rollupService.backfill(from, to == null ? Instant.now() : to));
+    }
+
+    @GetMapping("/rollups/check")
+    public ResponseEntity<RollupCheckResponse> checkRollups(
+            @RequestParam(name = "window") String window,
             @RequestParam(name = "limit", required = false, defaultValue = "10") int limit
     ) {
-        log.info("Analytics top: window={}, limit={}", window, limit);
-        List<TopUrlResponse> result = service.getTopByWindow(window, limit);
-        log.info("Analytics top size={}", result.size());
-        return ResponseEntity.ok(result);
+        log.info("Check rollups: window={}, limit={}", window, limit);
+        return ResponseEntity.ok(rollupService.check(window, limit));
     }
 }
@@ -1,64 +1,128 @@
 package com.ibarkhatov.urlshortener.controller;
 
+import com.ibarkhatov.urlshortener.dto.BatchItemResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibarkhatov.urlshortener.config.UrlBatchProperties;
 import com.ibarkhatov.urlshortener.dto.CreateUrlRequest;
+import com.ibarkhatov.urlshortener.dto.UrlPageResponse;
 import com.ibarkhatov.urlshortener.dto.UrlResponse;
+import com.ibarkhatov.urlshortener.metrics.UrlShortenerMetrics;
+import com.ibarkhatov.urlshortener.service.BulkUrlService;
+import com.ibarkhatov.urlshortener.service.UrlImportService;
 import com.ibarkhatov.urlshortener.service.UrlShorteningService;
+import com.ibarkhatov.urlshortener.uniques.UniqueVisitorTracker;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.List;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping
 @RequiredArgsConstructor
 @Slf4j
 public class UrlController {
 
     private final UrlShorteningService service;
+    private final BulkUrlService bulkUrlService;
+    private final UrlImportService importService;
+    private final ObjectMapper objectMapper;
+    private final UrlShortenerMetrics metrics;
+    private final UrlBatchProperties batchProperties;
 
     @PostMapping("/urls")
     public ResponseEntity<UrlResponse> createShortUrl(@Valid @RequestBody CreateUrlRequest request) {
-        log.info("Create url");
-        UrlResponse response = service.createShortUrl(request);
-        log.info("Created id={}, code={}", response.id(), response.shortCode());
+        log.debug("Create url");
+        UrlResponse response = metrics.create().record(() -> service.createShortUrl(request));
+        log.debug("Created id={}, code={}", response.id(), response.shortCode());
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/urls/batch")
+    public ResponseEntity<List<BatchItemResponse>> createBatch(@RequestBody List<CreateUrlRequest> requests) {
+        log.debug("Create batch: {}", requests.size());
+        if (requests.size() > batchProperties.maxSize()) {
+            log.debug("Rejected batch of {} urls", requests.size());
+            return ResponseEntity.of(ProblemDetail.forStatusAndDetail(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "A batch holds at most " + batchProperties.maxSize() + " urls, upload larger sets to /urls/import"))
+                    .build();
+        }
+        return ResponseEntity.ok(bulkUrlService.createAll(requests, 0));
+    }
+
+    @PostMapping(value = "/urls/import", consumes = {"application/x-ndjson", "text/csv"})
+    public void importUrls(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                           InputStream body,
+                           HttpServletResponse response) throws IOException {
+        log.debug("Import urls: {}", contentType);
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(UrlImportService.NDJSON.toString());
+        importService.importUrls(body, contentType, response.getOutputStream());
+    }
+
     @GetMapping("/{shortCode}")
-    public ResponseEntity<Void> redirect(@PathVariable String shortCode) {
-        log.info("Redirect by {}", shortCode);
-        return service.resolveAndTrack(shortCode)
+    public ResponseEntity<Void> redirect(@PathVariable String shortCode, HttpServletRequest request) {
+        log.debug("Redirect by {}", shortCode);
+        long visitor = UniqueVisitorTracker.visitorHash(request.getRemoteAddr(), request.getHeader(HttpHeaders.USER_AGENT));
+        return metrics.redirect().record(() -> service.resolveAndTrack(shortCode, visitor))
                 .map(url -> {
                     HttpHeaders headers = new HttpHeaders();
                     headers.setLocation(URI.create(url));
-                    log.info("Redirecting");
+                    log.debug("Redirecting");
                     return new ResponseEntity<Void>(headers, HttpStatus.FOUND);
                 })
                 .orElseGet(() -> {
-                    log.warn("Not found {}", shortCode);
+                    log.debug("Not found {}", shortCode);
+                    metrics.redirectMisses().increment();
                     return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
                 });
     }
 
-    @GetMapping("/urls")
-    public ResponseEntity<List<UrlResponse>> listAll() {
-        List<UrlResponse> list = service.listAll();
-        log.info("List urls: {}", list.size());
-        return ResponseEntity.ok(list);
+    @GetMapping(value = "/urls", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UrlPageResponse> list(
+            @RequestParam(name = "cursor", required = false) Long cursor,
+            @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        UrlPageResponse page = service.listPage(cursor, limit);
+        log.debug("List urls: {}", page.items().size());
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(value = "/urls", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        log.debug("Stream urls");
+        StreamingResponseBody body = out -> service.streamAll(url -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(url));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(UrlImportService.NDJSON).body(body);
     }
 
     @DeleteMapping("/urls/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
-        log.info("Delete {}", id);
+        log.debug("Delete {}", id);
         boolean removed = service.deleteById(id);
         if (removed) {
-            log.info("Deleted {}", id);
+            log.debug("Deleted {}", id);
             return ResponseEntity.noContent().build();
         } else {
             log.warn("Not found {}", id);
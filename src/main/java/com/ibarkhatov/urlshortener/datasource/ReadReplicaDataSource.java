@@ -0,0 +1,132 @@
+package com.ibarkhatov.urlshortener.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out connections of the replicas round robin, skipping replicas that are unreachable or lag behind
+ * more than {@code maxLag}, and connections of the primary when no replica qualifies. Replicas start as
+ * unusable until the first {@link #checkReplicas()}.
+ */
+@Slf4j
+public class ReadReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+    /**
+     * Replay lag in seconds; zero when everything received has been replayed, so an idle primary does not make
+     * its replicas look stale.
+     */
+    static final String LAG_QUERY = """
+            select case
+                       when not pg_is_in_recovery() then 0
+                       when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                       else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0)
+                   end
+            """;
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadReplicaDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag) {
+        this.primary = primary;
+        this.maxLag = maxLag;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean usable;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+                rs.next();
+                double lagSeconds = rs.getDouble(1);
+                usable = lagSeconds * 1000 <= maxLag.toMillis();
+                if (!usable) {
+                    log.warn("Replica {} lags {}s behind", replica.name, lagSeconds);
+                }
+            } catch (SQLException e) {
+                usable = false;
+                log.warn("Replica {} check failed: {}", replica.name, e.getMessage());
+            }
+            if (usable != replica.usable) {
+                log.info("Replica {} is now {}", replica.name, usable ? "used" : "skipped");
+            }
+            replica.usable = usable;
+        }
+    }
+
+    public int usableReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.usable).count();
+    }
+
+    public int replicas() {
+        return replicas.size();
+    }
+
+    /**
+     * Closes the replica pools; the primary is owned by the caller.
+     */
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private Connection getConnection(ConnectionSource source) throws SQLException {
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (!replica.usable) {
+                continue;
+            }
+            try {
+                return source.getConnection(replica.dataSource);
+            } catch (SQLException e) {
+                replica.usable = false;
+                log.warn("Replica {} skipped until the next check: {}", replica.name, e.getMessage());
+            }
+        }
+        return source.getConnection(primary);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection getConnection(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean usable;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.ibarkhatov.urlshortener.datasource;
+
+import com.ibarkhatov.urlshortener.config.ReadReplicaProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+/**
+ * Re-evaluates replica reachability and lag every {@code checkInterval}; the first run at startup is what
+ * enables the replicas.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "url-shortener.replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaHealthCheck implements SchedulingConfigurer {
+    private final ReadReplicaDataSource readReplicaDataSource;
+    private final ReadReplicaProperties properties;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(readReplicaDataSource::checkReplicas, properties.checkInterval());
+    }
+}
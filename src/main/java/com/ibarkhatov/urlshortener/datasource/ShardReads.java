@@ -0,0 +1,37 @@
+package com.ibarkhatov.urlshortener.datasource;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Read queries on shards, each in a read-only transaction begun after its shard is bound. What
+ * {@code @Transactional(readOnly = true)} is for a single database: the transaction may go to a read replica
+ * and all statements of a query see one snapshot.
+ */
+@Component
+public class ShardReads {
+    private final Shards shards;
+    private final TransactionTemplate readOnly;
+
+    public ShardReads(Shards shards, PlatformTransactionManager transactionManager) {
+        this.shards = shards;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    public <T> T on(int shard, Supplier<T> query) {
+        return shards.on(shard, () -> readOnly.execute(status -> query.get()));
+    }
+
+    /**
+     * {@link Shards#gather} with every shard's query in its own read-only transaction.
+     */
+    public <T> List<T> gather(IntFunction<T> query) {
+        return shards.gather(shard -> readOnly.execute(status -> query.apply(shard)));
+    }
+}
@@ -0,0 +1,80 @@
+package com.ibarkhatov.urlshortener.datasource;
+
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes the application's {@link DataSource} to the shard bound by {@link Shards}. Replaces Spring Boot's
+ * Liquibase bean with one that applies the changelog to every shard before anything uses the database.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "url-shortener.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource shardZeroDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(HikariDataSource shardZeroDataSource, DataSourceProperties dataSourceProperties,
+                                             ShardingProperties properties, MeterRegistry meterRegistry) {
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(shardZeroDataSource);
+        List<String> urls = properties.urls();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource shard = new HikariDataSource();
+            shard.setPoolName("shard-" + (i + 1));
+            shard.setJdbcUrl(urls.get(i));
+            shard.setUsername(dataSourceProperties.determineUsername());
+            shard.setPassword(dataSourceProperties.determinePassword());
+            shard.setMaximumPoolSize(properties.poolSize());
+            shard.setConnectionTimeout(properties.connectionTimeout().toMillis());
+            shard.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            shards.add(shard);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.liquibase", name = "enabled", matchIfMissing = true)
+    public SpringLiquibase liquibase(ShardRoutingDataSource dataSource,
+                                     @Value("${spring.liquibase.change-log}") String changeLog) {
+        ShardedLiquibase liquibase = new ShardedLiquibase(dataSource.shards());
+        liquibase.setChangeLog(changeLog);
+        return liquibase;
+    }
+
+    static class ShardedLiquibase extends SpringLiquibase {
+        private final List<DataSource> shards;
+
+        ShardedLiquibase(List<DataSource> shards) {
+            this.shards = shards;
+        }
+
+        @Override
+        public void afterPropertiesSet() throws LiquibaseException {
+            for (DataSource shard : shards) {
+                setDataSource(shard);
+                super.afterPropertiesSet();
+            }
+        }
+    }
+}
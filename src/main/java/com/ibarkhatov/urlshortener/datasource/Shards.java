@@ -0,0 +1,187 @@
+package com.ibarkhatov.urlshortener.datasource;
+
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Binds work to a shard and fans queries out over all shards. A link lives on the shard stored in the bits of
+ * its id from {@link #SHARD_SHIFT} up, so the id decoded from a short code routes without a lookup, and ids
+ * issued before sharding, all below {@code 2^40}, belong to shard 0. {@link ShardRoutingDataSource} hands out
+ * connections of the bound shard, shard 0 when none is bound. With sharding disabled there is only shard 0 and
+ * ids are plain sequence values.
+ * <p>
+ * A shard must be bound before a transaction starts: a transaction keeps the connection it began with.
+ */
+@Component
+public class Shards implements DisposableBean {
+    public static final int SHARD_SHIFT = 40;
+    public static final int NONE = -1;
+
+    private static final long LOCAL_ID_MASK = (1L << SHARD_SHIFT) - 1;
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int count;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ExecutorService gatherExecutor;
+
+    public Shards(ShardingProperties properties) {
+        this.count = properties.enabled() ? 1 + properties.urls().size() : 1;
+        if (count > 1) {
+            AtomicInteger threads = new AtomicInteger();
+            this.gatherExecutor = Executors.newFixedThreadPool(properties.gatherThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "shard-gather-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.gatherExecutor = null;
+        }
+    }
+
+    /**
+     * Shard bound to the calling thread, 0 if none is.
+     */
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return the shard of the link, or {@link #NONE} if no configured shard can hold the id
+     */
+    public int shardOf(long id) {
+        long shard = id >>> SHARD_SHIFT;
+        return id < 0 || shard >= count ? NONE : (int) shard;
+    }
+
+    public long toId(int shard, long localId) {
+        if (localId > LOCAL_ID_MASK) {
+            throw new IllegalStateException("Ids of shard " + shard + " are exhausted");
+        }
+        return (long) shard << SHARD_SHIFT | localId;
+    }
+
+    /**
+     * Shard for a new link, round robin.
+     */
+    public int next() {
+        return Math.floorMod(next.getAndIncrement(), count);
+    }
+
+    /**
+     * Shard owning a key hash, so that uniqueness of the key can be enforced by one shard's index.
+     */
+    public int forHash(byte[] hash) {
+        return Math.floorMod(ByteBuffer.wrap(hash).getInt(), count);
+    }
+
+    public <T> T on(int shard, Supplier<T> action) {
+        try (Scope ignored = bind(shard)) {
+            return action.get();
+        }
+    }
+
+    public void run(int shard, Runnable action) {
+        on(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the action on every shard in turn.
+     */
+    public void forEach(IntConsumer action) {
+        for (int shard = 0; shard < count; shard++) {
+            int bound = shard;
+            run(bound, () -> action.accept(bound));
+        }
+    }
+
+    /**
+     * Runs the query on every shard in parallel and returns the results in shard order. The first failure is
+     * rethrown once all queries are done or cancelled.
+     */
+    public <T> List<T> gather(IntFunction<T> query) {
+        if (count == 1) {
+            return Collections.singletonList(on(0, () -> query.apply(0)));
+        }
+        List<Future<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int bound = shard;
+            futures.add(gatherExecutor.submit(() -> on(bound, () -> query.apply(bound))));
+        }
+        List<T> results = new ArrayList<>(count);
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Binds the shard to the calling thread until the scope is closed, for work throwing checked exceptions.
+     */
+    public Scope bind(int shard) {
+        if (shard != current() && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch from shard " + current() + " to " + shard + " inside a transaction");
+        }
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return new Scope(previous);
+    }
+
+    @Override
+    public void destroy() {
+        if (gatherExecutor != null) {
+            gatherExecutor.shutdownNow();
+        }
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Integer previous;
+
+        private Scope(Integer previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.ibarkhatov.urlshortener.dto;
+
+public record BatchItemResponse(
+        int index,
+        UrlResponse url,
+        String error
+) {
+}
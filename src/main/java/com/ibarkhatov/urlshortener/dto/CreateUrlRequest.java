@@ -1,11 +1,22 @@
 package com.ibarkhatov.urlshortener.dto;
 
+import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
 import org.hibernate.validator.constraints.URL;
 
+import java.time.Instant;
+
+/**
+ * @param expiresAt redirects stop at this instant, never when empty
+ * @param maxClicks redirects stop after this many clicks, never when empty
+ */
 public record CreateUrlRequest(
-        @NotBlank @URL String originalUrl
+        @NotBlank @URL String originalUrl,
+        @Future Instant expiresAt,
+        @Positive Long maxClicks
 ) {
+    public CreateUrlRequest(String originalUrl) {
+        this(originalUrl, null, null);
+    }
 }
-
-
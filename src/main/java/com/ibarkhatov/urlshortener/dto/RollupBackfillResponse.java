@@ -0,0 +1,10 @@
+package com.ibarkhatov.urlshortener.dto;
+
+import java.time.Instant;
+
+public record RollupBackfillResponse(
+        Instant from,
+        Instant to,
+        int hours
+) {
+}
@@ -0,0 +1,11 @@
+package com.ibarkhatov.urlshortener.dto;
+
+import java.util.List;
+
+public record RollupCheckResponse(
+        String window,
+        int limit,
+        boolean consistent,
+        List<String> mismatches
+) {
+}
@@ -2,10 +2,14 @@ package com.ibarkhatov.urlshortener.dto;
 
 import java.time.Instant;
 
+/**
+ * @param uniqueVisitors estimated distinct visitors over the window's days, only when asked for
+ */
 public record TopUrlResponse(
         String shortCode,
         String originalUrl,
         long clickCount,
-        Instant lastAccessedAt
+        Instant lastAccessedAt,
+        Long uniqueVisitors
 ) {
 }
@@ -0,0 +1,16 @@
+package com.ibarkhatov.urlshortener.dto;
+
+import java.time.LocalDate;
+
+/**
+ * @param from           first UTC day counted
+ * @param to             last UTC day counted, today
+ * @param uniqueVisitors HyperLogLog estimate of the distinct visitors over {@code [from, to]}
+ */
+public record UniqueVisitorsResponse(
+        String shortCode,
+        LocalDate from,
+        LocalDate to,
+        long uniqueVisitors
+) {
+}
@@ -0,0 +1,9 @@
+package com.ibarkhatov.urlshortener.dto;
+
+import java.util.List;
+
+public record UrlPageResponse(
+        List<UrlResponse> items,
+        Long nextCursor
+) {
+}
@@ -8,8 +8,8 @@ public record UrlResponse(
         String shortCode,
         Instant createdAt,
         long clickCount,
-        Instant lastAccessedAt
+        Instant lastAccessedAt,
+        Instant expiresAt,
+        Long maxClicks
 ) {
 }
-
-
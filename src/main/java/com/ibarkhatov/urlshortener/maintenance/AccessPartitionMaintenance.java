@@ -0,0 +1,168 @@
+package com.ibarkhatov.urlshortener.maintenance;
+
+import com.ibarkhatov.urlshortener.config.AccessPartitionProperties;
+import com.ibarkhatov.urlshortener.config.ClickRollupProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.repository.AccessPartitionRepository;
+import com.ibarkhatov.urlshortener.repository.ClickJdbcRepository;
+import com.ibarkhatov.urlshortener.repository.UniqueVisitorRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * Keeps {@code premakeDays} of future partitions of {@code short_url_access} and drops partitions past the
+ * retention, so old clicks are removed by dropping a table instead of deleting rows. Unique visitor sketches
+ * of those days go with them, and so do the hour rollups; minute rollups are kept for {@code minuteRetention}.
+ * Every shard is maintained on its own.
+ * <p>
+ * Expired partitions are detached and dropped one per transaction after the maintenance one, each giving up
+ * after {@code detachLockTimeout} instead of holding up the clicks being written; the next run retries. Clicks landing in the default partition mean a day had no partition in
+ * time; they are moved out when it is created and counted by {@code urlshortener.access.default-partition.rows}.
+ */
+@Component
+@Slf4j
+public class AccessPartitionMaintenance {
+    private final AccessPartitionRepository repository;
+    private final UniqueVisitorRepository uniqueVisitorRepository;
+    private final AccessPartitionProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Shards shards;
+    private final ClickJdbcRepository clickRepository;
+    private final ClickRollupProperties rollupProperties;
+    private final AtomicLong[] defaultRows;
+
+    public AccessPartitionMaintenance(AccessPartitionRepository repository, UniqueVisitorRepository uniqueVisitorRepository,
+                                      AccessPartitionProperties properties, TransactionTemplate transactionTemplate,
+                                      Shards shards, ClickJdbcRepository clickRepository,
+                                      ClickRollupProperties rollupProperties, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.uniqueVisitorRepository = uniqueVisitorRepository;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.shards = shards;
+        this.clickRepository = clickRepository;
+        this.rollupProperties = rollupProperties;
+        this.defaultRows = new AtomicLong[shards.count()];
+        for (int shard = 0; shard < defaultRows.length; shard++) {
+            defaultRows[shard] = new AtomicLong();
+            Gauge.builder("urlshortener.access.default-partition.rows", defaultRows[shard], AtomicLong::get)
+                    .tag("shard", Integer.toString(shard))
+                    .register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${url-shortener.access-partitions.cron}", zone = "UTC")
+    public void maintain() {
+        shards.forEach(this::maintain);
+    }
+
+    private void maintain(int shard) {
+        List<String> expired;
+        try {
+            expired = transactionTemplate.execute(status -> {
+                if (!repository.tryLock()) {
+                    log.info("Partition maintenance of shard {} is running on another node", shard);
+                    return null;
+                }
+                LocalDate today = LocalDate.now(ZoneOffset.UTC);
+                for (int i = 0; i <= properties.premakeDays(); i++) {
+                    int moved = repository.createDailyPartition(today.plusDays(i));
+                    if (moved > 0) {
+                        log.warn("Moved {} clicks of {} out of the default partition on shard {}", moved, today.plusDays(i), shard);
+                    }
+                }
+                Instant cutoff = Instant.now().minus(properties.retention());
+                List<String> partitions = new ArrayList<>();
+                for (String partition : repository.findPartitions()) {
+                    LocalDate day = parseDay(partition);
+                    if (day != null && !day.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC).isAfter(cutoff)) {
+                        partitions.add(partition);
+                    }
+                }
+                LocalDate firstKept = LocalDate.ofInstant(cutoff, ZoneOffset.UTC);
+                int sketches = uniqueVisitorRepository.deleteBefore(firstKept);
+                if (sketches > 0) {
+                    log.info("Deleted {} visitor sketches before {} on shard {}", sketches, firstKept, shard);
+                }
+                long rows = repository.countDefaultRows();
+                defaultRows[shard].set(rows);
+                if (rows > 0) {
+                    log.warn("Default partition holds {} clicks on shard {}", rows, shard);
+                }
+                return partitions;
+            });
+        } catch (RuntimeException e) {
+            log.error("Partition maintenance failed on shard {}", shard, e);
+            return;
+        }
+        if (expired == null) {
+            return;
+        }
+        for (String partition : expired) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        repository.detachAndDropPartition(partition, properties.detachLockTimeout()));
+                log.info("Dropped expired partition {} on shard {}", partition, shard);
+            } catch (PessimisticLockingFailureException e) {
+                log.warn("Partition {} on shard {} is busy, dropping it on the next run", partition, shard);
+            } catch (RuntimeException e) {
+                log.error("Dropping expired partition {} failed on shard {}", partition, shard, e);
+            }
+        }
+        Instant now = Instant.now();
+        pruneRollups(shard, "minute", before -> clickRepository.deleteMinuteBucketsBefore(before, rollupProperties.rowsPerBatch()),
+                now.minus(rollupProperties.minuteRetention()).truncatedTo(ChronoUnit.MINUTES));
+        pruneRollups(shard, "hour", before -> clickRepository.deleteHourBucketsBefore(before, rollupProperties.rowsPerBatch()),
+                now.minus(properties.retention()).truncatedTo(ChronoUnit.HOURS));
+    }
+
+    private void pruneRollups(int shard, String resolution, ToIntFunction<Instant> deleteBatch, Instant before) {
+        try {
+            int total = 0;
+            int deleted;
+            do {
+                deleted = transactionTemplate.execute(status -> deleteBatch.applyAsInt(before));
+                total += deleted;
+            } while (deleted == rollupProperties.rowsPerBatch());
+            if (total > 0) {
+                log.info("Deleted {} {} rollups before {} on shard {}", total, resolution, before, shard);
+            }
+        } catch (RuntimeException e) {
+            log.error("Deleting {} rollups failed on shard {}", resolution, shard, e);
+        }
+    }
+
+    private static LocalDate parseDay(String partition) {
+        if (!partition.startsWith(AccessPartitionRepository.PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partition.substring(AccessPartitionRepository.PARTITION_PREFIX.length()),
+                    AccessPartitionRepository.PARTITION_DAY);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
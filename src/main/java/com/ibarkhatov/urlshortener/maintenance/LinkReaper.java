@@ -0,0 +1,106 @@
+package com.ibarkhatov.urlshortener.maintenance;
+
+import com.ibarkhatov.urlshortener.config.LinkReaperProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.repository.LinkReclamationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reclaims soft-deleted links. Each run first soft-deletes expired links, then works through links deleted
+ * longer than {@code grace} ago in short transactions: every batch locks a few links, deletes a bounded number
+ * of their access and rollup rows, and removes the links once nothing is left. No statement touches more than
+ * {@code rowsPerBatch} rows, so a link with millions of clicks is reclaimed over many batches instead of one
+ * cascading delete. Shards are reclaimed one after another, each with up to {@code maxBatchesPerRun} batches.
+ */
+@Component
+@Slf4j
+public class LinkReaper implements SchedulingConfigurer {
+    private final LinkReclamationRepository repository;
+    private final LinkReaperProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Shards shards;
+    private final Counter expiredLinks;
+    private final Counter reclaimedLinks;
+    private final Counter reclaimedRows;
+
+    public LinkReaper(LinkReclamationRepository repository, LinkReaperProperties properties,
+                      TransactionTemplate transactionTemplate, Shards shards, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.shards = shards;
+        this.expiredLinks = meterRegistry.counter("urlshortener.reaper.expired");
+        this.reclaimedLinks = meterRegistry.counter("urlshortener.reaper.links");
+        this.reclaimedRows = meterRegistry.counter("urlshortener.reaper.rows");
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        if (properties.enabled()) {
+            registrar.addFixedDelayTask(this::run, properties.interval());
+        }
+    }
+
+    void run() {
+        shards.forEach(this::run);
+    }
+
+    private void run(int shard) {
+        try {
+            int batches = 0;
+            int expired;
+            do {
+                expired = transactionTemplate.execute(status -> repository.markExpired(properties.linksPerBatch()));
+                expiredLinks.increment(expired);
+            } while (expired == properties.linksPerBatch() && ++batches < properties.maxBatchesPerRun() && pause());
+            while (batches < properties.maxBatchesPerRun() && reclaimBatch()) {
+                batches++;
+                if (!pause()) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Link reclamation failed on shard {}", shard, e);
+        }
+    }
+
+    /**
+     * @return whether the batch found links to work on
+     */
+    boolean reclaimBatch() {
+        Boolean found = transactionTemplate.execute(status -> {
+            List<Long> ids = repository.lockDeleted(Instant.now().minus(properties.grace()), properties.linksPerBatch());
+            if (ids.isEmpty()) {
+                return false;
+            }
+            int rows = repository.deleteHistory(ids, properties.rowsPerBatch());
+            reclaimedRows.increment(rows);
+            if (rows < properties.rowsPerBatch()) {
+                int links = repository.deleteLinks(ids);
+                reclaimedLinks.increment(links);
+                log.debug("Reclaimed links: links={}, rows={}", links, rows);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(found);
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.batchPause().toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
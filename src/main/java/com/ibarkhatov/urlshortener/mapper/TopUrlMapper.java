@@ -3,10 +3,14 @@ package com.ibarkhatov.urlshortener.mapper;
 import com.ibarkhatov.urlshortener.dto.TopUrlResponse;
 import com.ibarkhatov.urlshortener.repository.projection.TopItemView;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 import java.util.List;
 
 @Mapper(componentModel = "spring")
 public interface TopUrlMapper {
     List<TopUrlResponse> toDtoList(List<TopItemView> views);
+
+    @Mapping(target = "uniqueVisitors", ignore = true)
+    TopUrlResponse toDto(TopItemView view);
 }
@@ -0,0 +1,45 @@
+package com.ibarkhatov.urlshortener.reactive;
+
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Non-blocking redirect and analytics read on WebFlux and R2DBC, enabled by the {@code reactive} profile.
+ * Runs the same native queries as {@link com.ibarkhatov.urlshortener.repository.ShortUrlRepository} without
+ * the redirect cache and the click buffer, to compare the two stacks under load. Its single R2DBC pool only
+ * reaches shard 0, so startup fails when links are spread over more shards.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("reactive")
+public class ReactiveConfig {
+
+    public ReactiveConfig(Shards shards) {
+        if (shards.count() > 1) {
+            throw new IllegalStateException("The reactive profile only serves shard 0 but " + shards.count()
+                    + " shards are configured; disable url-shortener.sharding or run the servlet stack");
+        }
+    }
+
+    /**
+     * Tomcat is also on the classpath and would otherwise win the reactive server auto-configuration.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveRoutes(ReactiveUrlHandler handler) {
+        return route()
+                .GET("/analytics/top", handler::top)
+                .GET("/{shortCode}", handler::redirect)
+                .build();
+    }
+}
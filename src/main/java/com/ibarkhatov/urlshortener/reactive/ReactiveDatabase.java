@@ -0,0 +1,45 @@
+package com.ibarkhatov.urlshortener.reactive;
+
+import com.ibarkhatov.urlshortener.config.ReactiveProperties;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+/**
+ * Owns the R2DBC pool of the reactive profile. The pool is deliberately not exposed as a
+ * {@code ConnectionFactory} bean: Spring Boot backs off the JDBC datasource when one exists, and the rest of
+ * the application still runs on JDBC.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveDatabase implements DisposableBean {
+    private final ConnectionPool pool;
+    private final DatabaseClient client;
+
+    public ReactiveDatabase(ReactiveProperties properties, DataSourceProperties dataSourceProperties) {
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(
+                        ConnectionFactoryOptions.parse(properties.r2dbcUrl())
+                                .mutate()
+                                .option(ConnectionFactoryOptions.USER, dataSourceProperties.getUsername())
+                                .option(ConnectionFactoryOptions.PASSWORD, dataSourceProperties.getPassword())
+                                .build()))
+                .maxSize(properties.poolSize())
+                .build());
+        this.client = DatabaseClient.create(pool);
+    }
+
+    public DatabaseClient client() {
+        return client;
+    }
+
+    @Override
+    public void destroy() {
+        pool.dispose();
+    }
+}
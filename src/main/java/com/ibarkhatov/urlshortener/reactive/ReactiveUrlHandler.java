@@ -0,0 +1,116 @@
+package com.ibarkhatov.urlshortener.reactive;
+
+import com.ibarkhatov.urlshortener.bloom.ShortCodeBloomFilter;
+import com.ibarkhatov.urlshortener.codec.ShortCodeCodec;
+import com.ibarkhatov.urlshortener.config.ClickRollupProperties;
+import com.ibarkhatov.urlshortener.dto.TopUrlResponse;
+import com.ibarkhatov.urlshortener.metrics.UrlShortenerMetrics;
+import com.ibarkhatov.urlshortener.repository.ShortUrlQueries;
+import com.ibarkhatov.urlshortener.service.RollupRange;
+import com.ibarkhatov.urlshortener.service.TimeWindows;
+import com.ibarkhatov.urlshortener.uniques.UniqueVisitorTracker;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+@Component
+@Profile("reactive")
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveUrlHandler {
+    private final ReactiveDatabase database;
+    private final ShortCodeCodec codec;
+    private final ShortCodeBloomFilter shortCodeFilter;
+    private final UniqueVisitorTracker uniqueVisitors;
+    private final ClickRollupProperties rollupProperties;
+    private final UrlShortenerMetrics metrics;
+
+    /**
+     * Records the same resolve timer and miss counter as the servlet redirect; the timer runs from subscription
+     * until the lookup completes.
+     */
+    public Mono<ServerResponse> redirect(ServerRequest request) {
+        String shortCode = request.pathVariable("shortCode");
+        return Mono.defer(() -> {
+                    Timer.Sample sample = Timer.start();
+                    return resolve(shortCode, request).doFinally(signal -> sample.stop(metrics.redirect()));
+                })
+                .flatMap(url -> ServerResponse.status(HttpStatus.FOUND).location(URI.create(url)).build())
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.debug("Not found {}", shortCode);
+                    metrics.redirectMisses().increment();
+                    return ServerResponse.notFound().build();
+                }));
+    }
+
+    private Mono<String> resolve(String shortCode, ServerRequest request) {
+        long id = codec.decode(shortCode);
+        if (id == ShortCodeCodec.INVALID || !shortCodeFilter.mightContain(shortCode)) {
+            return Mono.empty();
+        }
+        return database.client().sql(ShortUrlQueries.INCREMENT_AND_RETURN)
+                .bind("id", id)
+                .bind("code", shortCode)
+                .map(row -> {
+                    uniqueVisitors.record(row.get(0, Long.class), visitorHash(request));
+                    return row.get(1, String.class);
+                })
+                .one();
+    }
+
+    public Mono<ServerResponse> top(ServerRequest request) {
+        String window = request.queryParam("window").filter(w -> !w.isBlank()).orElse(null);
+        int limit = request.queryParam("limit").map(Integer::parseInt).orElse(10);
+        Flux<TopUrlResponse> result;
+        if (window == null) {
+            result = database.client().sql(ShortUrlQueries.TOP_BY_CLICK_COUNT)
+                    .bind("limit", limit)
+                    .map(ReactiveUrlHandler::toTopUrl)
+                    .all();
+        } else {
+            Instant now = Instant.now();
+            RollupRange range = RollupRange.of(now.minus(TimeWindows.parse(window)), now, rollupProperties.minuteRetention());
+            result = database.client().sql(ShortUrlQueries.TOP_BY_WINDOW_FROM_ROLLUPS)
+                    .bind("fromTs", utc(range.from()))
+                    .bind("minuteFrom", utc(range.minuteFrom()))
+                    .bind("hourFrom", utc(range.hourFrom()))
+                    .bind("hourTo", utc(range.hourTo()))
+                    .bind("minuteTo", utc(range.minuteTo()))
+                    .bind("limit", limit)
+                    .map(ReactiveUrlHandler::toTopUrl)
+                    .all();
+        }
+        return ServerResponse.ok().body(result, TopUrlResponse.class);
+    }
+
+    private static long visitorHash(ServerRequest request) {
+        String address = request.remoteAddress().map(a -> a.getAddress().getHostAddress()).orElse("");
+        return UniqueVisitorTracker.visitorHash(address, request.headers().firstHeader(HttpHeaders.USER_AGENT));
+    }
+
+    private static TopUrlResponse toTopUrl(Readable row) {
+        Number clickCount = row.get(3, Number.class);
+        OffsetDateTime lastAccessedAt = row.get(4, OffsetDateTime.class);
+        return new TopUrlResponse(row.get(1, String.class), row.get(2, String.class),
+                clickCount == null ? 0 : clickCount.longValue(),
+                lastAccessedAt == null ? null : lastAccessedAt.toInstant(), null);
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,61 @@
+package com.ibarkhatov.urlshortener.repository;
+
+import com.ibarkhatov.urlshortener.service.AccessExportFormat;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+
+/**
+ * Copies accesses with their short code straight from {@code COPY ... TO STDOUT} into a stream: the rows are
+ * formatted by Postgres and PgJDBC hands the bytes over as they arrive, without mapping them to objects.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccessExportRepository {
+    private static final String QUERY = """
+            select a.id, u.short_code, a.short_url_id,
+                   to_char(a.accessed_at at time zone 'UTC', 'YYYY-MM-DD"T"HH24:MI:SS.US"Z"') as accessed_at
+            from short_url_access a
+                join short_url u on u.id = a.short_url_id
+            where a.accessed_at >= '%s'::timestamptz and a.accessed_at < '%s'::timestamptz
+            order by a.accessed_at, a.id
+            """;
+
+    /**
+     * JSON never contains raw control characters, so CSV with \x01 as quote and \x02 as delimiter copies the
+     * single column verbatim, where text format would escape every backslash.
+     */
+    private static final String NDJSON_COPY = """
+            copy (select json_build_object('id', e.id, 'shortCode', e.short_code, 'shortUrlId', e.short_url_id,
+                                           'accessedAt', e.accessed_at)
+                  from (%s) e)
+            to stdout with (format csv, quote e'\\x01', delimiter e'\\x02')
+            """;
+    private static final String CSV_COPY = "copy (%s) to stdout with (format csv, header %s)";
+
+    private final DataSource dataSource;
+
+    /**
+     * Runs one autocommit COPY of accesses in {@code [from, to)}; read-only, so it may be served by a replica.
+     *
+     * @return number of rows written
+     */
+    public long copyAccesses(Instant from, Instant to, AccessExportFormat format, boolean header, OutputStream out)
+            throws SQLException, IOException {
+        String query = QUERY.formatted(from, to);
+        String copy = format == AccessExportFormat.NDJSON
+                ? NDJSON_COPY.formatted(query)
+                : CSV_COPY.formatted(query, header);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(copy, out);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.ibarkhatov.urlshortener.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class AccessPartitionRepository {
+    public static final String PARTITION_PREFIX = "short_url_access_p";
+    public static final String DEFAULT_PARTITION = "short_url_access_default";
+    public static final DateTimeFormatter PARTITION_DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Serializes maintenance across nodes for the current transaction.
+     */
+    public boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select pg_try_advisory_xact_lock(hashtext('short_url_access_partitions'))", Boolean.class));
+    }
+
+    public List<String> findPartitions() {
+        return jdbcTemplate.queryForList("""
+                select c.relname
+                from pg_inherits i
+                join pg_class c on c.oid = i.inhrelid
+                join pg_class p on p.oid = i.inhparent
+                where p.relname = 'short_url_access'
+                """, String.class);
+    }
+
+    /**
+     * Creates the partition of the day unless it exists. Clicks of that day already in the default partition are
+     * moved into it, since a partition cannot be created over rows the default one holds.
+     *
+     * @return number of rows moved out of the default partition
+     */
+    public int createDailyPartition(LocalDate day) {
+        String partition = partitionName(day);
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("select to_regclass(?) is not null", Boolean.class, partition))) {
+            return 0;
+        }
+        OffsetDateTime from = day.atStartOfDay().atOffset(ZoneOffset.UTC);
+        OffsetDateTime to = day.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+        String bounds = "for values from ('%s') to ('%s')".formatted(from, to);
+        boolean stray = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select exists (select 1 from " + DEFAULT_PARTITION + " where accessed_at >= ? and accessed_at < ?)",
+                Boolean.class, from, to));
+        if (!stray) {
+            jdbcTemplate.execute("create table %s partition of short_url_access %s".formatted(partition, bounds));
+            return 0;
+        }
+        jdbcTemplate.execute("create table %s (like short_url_access including defaults)".formatted(partition));
+        int moved = jdbcTemplate.update("""
+                with moved as (
+                    delete from %s where accessed_at >= ? and accessed_at < ?
+                    returning id, short_url_id, accessed_at
+                )
+                insert into %s (id, short_url_id, accessed_at)
+                select id, short_url_id, accessed_at from moved
+                """.formatted(DEFAULT_PARTITION, partition), from, to);
+        jdbcTemplate.execute("alter table short_url_access attach partition %s %s".formatted(partition, bounds));
+        return moved;
+    }
+
+    public long countDefaultRows() {
+        Long rows = jdbcTemplate.queryForObject("select count(*) from " + DEFAULT_PARTITION, Long.class);
+        return rows == null ? 0 : rows;
+    }
+
+    /**
+     * Detaches and drops the partition in the current transaction, failing instead of queueing the clicks behind
+     * its exclusive lock on {@code short_url_access} for longer than {@code lockTimeout}. A concurrent detach
+     * would not lock at all, but PostgreSQL does not allow it while a default partition exists.
+     */
+    public void detachAndDropPartition(String partition, Duration lockTimeout) {
+        jdbcTemplate.execute("set local lock_timeout = " + lockTimeout.toMillis());
+        jdbcTemplate.execute("alter table short_url_access detach partition " + partition);
+        jdbcTemplate.execute("drop table " + partition);
+    }
+
+    public static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + PARTITION_DAY.format(day);
+    }
+}
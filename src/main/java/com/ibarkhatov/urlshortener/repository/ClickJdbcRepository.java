@@ -0,0 +1,161 @@
+package com.ibarkhatov.urlshortener.repository;
+
+import com.ibarkhatov.urlshortener.tracking.ClickAggregate;
+import com.ibarkhatov.urlshortener.tracking.ClickBucket;
+import com.ibarkhatov.urlshortener.tracking.ClickEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Clicks of deleted links are dropped, so buffered clicks never race {@code LinkReaper} removing the link.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClickJdbcRepository {
+    private static final int ROWS_PER_STATEMENT = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void applyClicks(List<ClickAggregate> aggregates) {
+        for (int from = 0; from < aggregates.size(); from += ROWS_PER_STATEMENT) {
+            List<ClickAggregate> chunk = aggregates.subList(from, Math.min(from + ROWS_PER_STATEMENT, aggregates.size()));
+            StringJoiner values = new StringJoiner(", ");
+            List<Object> args = new ArrayList<>(chunk.size() * 3);
+            for (ClickAggregate aggregate : chunk) {
+                values.add("(?::bigint, ?::bigint, ?::timestamptz)");
+                args.add(aggregate.shortUrlId());
+                args.add(aggregate.clicks());
+                args.add(toOffsetDateTime(aggregate.lastAccessedAt()));
+            }
+            jdbcTemplate.update("""
+                    update short_url s
+                    set click_count = s.click_count + v.clicks,
+                        last_accessed_at = greatest(s.last_accessed_at, v.last_accessed_at)
+                    from (values %s) as v(id, clicks, last_accessed_at)
+                    where s.id = v.id and s.deleted_at is null
+                    """.formatted(values), args.toArray());
+        }
+    }
+
+    public void insertAccesses(List<ClickEvent> events) {
+        for (int from = 0; from < events.size(); from += ROWS_PER_STATEMENT) {
+            List<ClickEvent> chunk = events.subList(from, Math.min(from + ROWS_PER_STATEMENT, events.size()));
+            StringJoiner values = new StringJoiner(", ");
+            List<Object> args = new ArrayList<>(chunk.size() * 2);
+            for (ClickEvent event : chunk) {
+                values.add("(?::bigint, ?::timestamptz)");
+                args.add(event.shortUrlId());
+                args.add(toOffsetDateTime(event.accessedAt()));
+            }
+            jdbcTemplate.update("""
+                    insert into short_url_access(short_url_id, accessed_at)
+                    select v.short_url_id, v.accessed_at
+                    from (values %s) as v(short_url_id, accessed_at)
+                    join short_url s on s.id = v.short_url_id and s.deleted_at is null
+                    """.formatted(values), args.toArray());
+        }
+    }
+
+    /**
+     * Adds per-minute click buckets to the minute rollup and, summed per hour, to the hour rollup.
+     * Every bucket must be unique per link and minute.
+     */
+    public void applyRollups(List<ClickBucket> minuteBuckets) {
+        for (int from = 0; from < minuteBuckets.size(); from += ROWS_PER_STATEMENT) {
+            List<ClickBucket> chunk = minuteBuckets.subList(from, Math.min(from + ROWS_PER_STATEMENT, minuteBuckets.size()));
+            StringJoiner values = new StringJoiner(", ");
+            List<Object> args = new ArrayList<>(chunk.size() * 4);
+            for (ClickBucket bucket : chunk) {
+                values.add("(?::bigint, ?::timestamptz, ?::bigint, ?::timestamptz)");
+                args.add(bucket.shortUrlId());
+                args.add(toOffsetDateTime(bucket.bucketStart()));
+                args.add(bucket.clicks());
+                args.add(toOffsetDateTime(bucket.lastAccessedAt()));
+            }
+            jdbcTemplate.update("""
+                    insert into short_url_click_minute(short_url_id, bucket_start, click_count, last_accessed_at)
+                    select v.short_url_id, v.bucket_start, v.clicks, v.last_accessed_at
+                    from (values %s) as v(short_url_id, bucket_start, clicks, last_accessed_at)
+                    join short_url s on s.id = v.short_url_id and s.deleted_at is null
+                    on conflict (bucket_start, short_url_id) do update
+                    set click_count = short_url_click_minute.click_count + excluded.click_count,
+                        last_accessed_at = greatest(short_url_click_minute.last_accessed_at, excluded.last_accessed_at)
+                    """.formatted(values), args.toArray());
+            jdbcTemplate.update("""
+                    insert into short_url_click_hour(short_url_id, bucket_start, click_count, last_accessed_at)
+                    select v.short_url_id, date_trunc('hour', v.bucket_start, 'UTC'), sum(v.clicks), max(v.last_accessed_at)
+                    from (values %s) as v(short_url_id, bucket_start, clicks, last_accessed_at)
+                    join short_url s on s.id = v.short_url_id and s.deleted_at is null
+                    group by 1, 2
+                    on conflict (bucket_start, short_url_id) do update
+                    set click_count = short_url_click_hour.click_count + excluded.click_count,
+                        last_accessed_at = greatest(short_url_click_hour.last_accessed_at, excluded.last_accessed_at)
+                    """.formatted(values), args.toArray());
+        }
+    }
+
+    /**
+     * Recomputes both rollups from raw access rows in {@code [from, to)}, replacing the stored buckets.
+     * Both bounds must be aligned to whole hours.
+     */
+    public void rebuildRollups(Instant from, Instant to) {
+        jdbcTemplate.update("""
+                insert into short_url_click_minute(short_url_id, bucket_start, click_count, last_accessed_at)
+                select a.short_url_id, date_trunc('minute', a.accessed_at, 'UTC'), count(*), max(a.accessed_at)
+                from short_url_access a
+                where a.accessed_at >= ? and a.accessed_at < ?
+                group by 1, 2
+                on conflict (bucket_start, short_url_id) do update
+                set click_count = excluded.click_count,
+                    last_accessed_at = excluded.last_accessed_at
+                """, toOffsetDateTime(from), toOffsetDateTime(to));
+        jdbcTemplate.update("""
+                insert into short_url_click_hour(short_url_id, bucket_start, click_count, last_accessed_at)
+                select a.short_url_id, date_trunc('hour', a.accessed_at, 'UTC'), count(*), max(a.accessed_at)
+                from short_url_access a
+                where a.accessed_at >= ? and a.accessed_at < ?
+                group by 1, 2
+                on conflict (bucket_start, short_url_id) do update
+                set click_count = excluded.click_count,
+                    last_accessed_at = excluded.last_accessed_at
+                """, toOffsetDateTime(from), toOffsetDateTime(to));
+    }
+
+    /**
+     * Deletes up to {@code limit} minute buckets starting before {@code before}.
+     */
+    public int deleteMinuteBucketsBefore(Instant before, int limit) {
+        return deleteBucketsBefore("short_url_click_minute", before, limit);
+    }
+
+    /**
+     * Deletes up to {@code limit} hour buckets starting before {@code before}.
+     */
+    public int deleteHourBucketsBefore(Instant before, int limit) {
+        return deleteBucketsBefore("short_url_click_hour", before, limit);
+    }
+
+    private int deleteBucketsBefore(String table, Instant before, int limit) {
+        return jdbcTemplate.update("""
+                delete from %1$s r
+                using (
+                    select bucket_start, short_url_id from %1$s
+                    where bucket_start < ?
+                    limit ?
+                ) v
+                where r.bucket_start = v.bucket_start and r.short_url_id = v.short_url_id
+                """.formatted(table), toOffsetDateTime(before), limit);
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+}
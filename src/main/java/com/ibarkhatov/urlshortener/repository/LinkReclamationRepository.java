@@ -0,0 +1,90 @@
+package com.ibarkhatov.urlshortener.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Batched statements of {@code LinkReaper}. The locking reads skip rows locked by other nodes, so concurrent
+ * reapers work on disjoint links and never wait for each other.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LinkReclamationRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Soft-deletes up to {@code limit} links whose expiry has passed.
+     */
+    public int markExpired(int limit) {
+        return jdbcTemplate.update("""
+                update short_url s
+                set deleted_at = now(), original_url_hash = null
+                from (
+                    select id from short_url
+                    where expires_at <= now() and deleted_at is null
+                    order by expires_at
+                    limit ?
+                    for update skip locked
+                ) e
+                where s.id = e.id
+                """, limit);
+    }
+
+    /**
+     * Locks up to {@code limit} links deleted before {@code deletedBefore} until the end of the transaction.
+     */
+    public List<Long> lockDeleted(Instant deletedBefore, int limit) {
+        return jdbcTemplate.queryForList("""
+                select id from short_url
+                where deleted_at < ?
+                order by deleted_at
+                limit ?
+                for update skip locked
+                """, Long.class, deletedBefore.atOffset(ZoneOffset.UTC), limit);
+    }
+
+    /**
+     * Deletes up to {@code limit} access, rollup and visitor sketch rows of the links, access rows first.
+     */
+    public int deleteHistory(List<Long> ids, int limit) {
+        Long[] array = ids.toArray(Long[]::new);
+        int deleted = jdbcTemplate.update("""
+                delete from short_url_access a
+                using (
+                    select id, accessed_at from short_url_access
+                    where short_url_id = any(?)
+                    limit ?
+                ) v
+                where a.id = v.id and a.accessed_at = v.accessed_at
+                """, array, limit);
+        String[][] rollups = {
+                {"short_url_click_minute", "bucket_start"},
+                {"short_url_click_hour", "bucket_start"},
+                {"short_url_visitor_day", "day"}
+        };
+        for (String[] rollup : rollups) {
+            if (deleted >= limit) {
+                break;
+            }
+            deleted += jdbcTemplate.update("""
+                    delete from %1$s r
+                    using (
+                        select %2$s, short_url_id from %1$s
+                        where short_url_id = any(?)
+                        limit ?
+                    ) v
+                    where r.%2$s = v.%2$s and r.short_url_id = v.short_url_id
+                    """.formatted(rollup[0], rollup[1]), array, limit - deleted);
+        }
+        return deleted;
+    }
+
+    public int deleteLinks(List<Long> ids) {
+        return jdbcTemplate.update("delete from short_url where id = any(?)", (Object) ids.toArray(Long[]::new));
+    }
+}
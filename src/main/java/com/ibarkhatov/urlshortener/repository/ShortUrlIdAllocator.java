@@ -0,0 +1,71 @@
+package com.ibarkhatov.urlshortener.repository;
+
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pooled id allocation over {@code short_url_id_seq}. Every {@code nextval} reserves the block
+ * {@code (value - BLOCK_SIZE, value]}, so most ids are handed out from memory and the short code can be
+ * computed before the row is inserted.
+ * <p>
+ * Each shard has its own sequence and blocks; ids are allocated on the shard bound to the calling thread and
+ * carry that shard, see {@link Shards#toId}.
+ */
+@Component
+public class ShortUrlIdAllocator {
+    /**
+     * Must match the increment of {@code short_url_id_seq} set by changeset 003.
+     */
+    public static final int BLOCK_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final long[] next;
+    private final long[] last;
+
+    public ShortUrlIdAllocator(JdbcTemplate jdbcTemplate, Shards shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.next = new long[shards.count()];
+        this.last = new long[shards.count()];
+        Arrays.fill(last, -1);
+    }
+
+    public synchronized long next() {
+        int shard = Shards.current();
+        if (next[shard] > last[shard]) {
+            long hi = jdbcTemplate.queryForObject("select nextval('short_url_id_seq')", Long.class);
+            next[shard] = Math.max(hi - BLOCK_SIZE + 1, 1);
+            last[shard] = hi;
+        }
+        return shards.toId(shard, next[shard]++);
+    }
+
+    public synchronized long[] next(int count) {
+        int shard = Shards.current();
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count && next[shard] <= last[shard]) {
+            ids[filled++] = shards.toId(shard, next[shard]++);
+        }
+        if (filled == count) {
+            return ids;
+        }
+        int blocks = (count - filled + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        List<Long> his = jdbcTemplate.queryForList(
+                "select nextval('short_url_id_seq') from generate_series(1, ?)", Long.class, blocks);
+        for (long hi : his) {
+            long id = Math.max(hi - BLOCK_SIZE + 1, 1);
+            while (filled < count && id <= hi) {
+                ids[filled++] = shards.toId(shard, id++);
+            }
+            next[shard] = id;
+            last[shard] = hi;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,217 @@
+package com.ibarkhatov.urlshortener.repository;
+
+import com.ibarkhatov.urlshortener.domain.ShortUrl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@Repository
+@RequiredArgsConstructor
+public class ShortUrlJdbcRepository {
+    private static final String COLUMNS =
+            "id, original_url, short_code, created_at, click_count, last_accessed_at, expires_at, max_clicks, deleted_at";
+    private static final RowMapper<ShortUrl> ROW_MAPPER = (rs, rowNum) -> toEntity(rs);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<ShortUrl> entities) {
+        jdbcTemplate.batchUpdate("""
+                        insert into short_url(id, original_url, short_code, created_at, click_count, expires_at, max_clicks)
+                        values (?, ?, ?, ?, ?, ?, ?)
+                        """,
+                entities.stream()
+                        .map(e -> new Object[]{e.getId(), e.getOriginalUrl(), e.getShortCode(),
+                                e.getCreatedAt().atOffset(ZoneOffset.UTC), e.getClickCount(),
+                                utc(e.getExpiresAt()), e.getMaxClicks()})
+                        .toList());
+    }
+
+    /**
+     * Inserts the link unless one with the same {@code original_url_hash} exists. Empty on conflict, also when
+     * the conflicting row was committed by a concurrent transaction after this statement started; such a row is
+     * only visible to a later statement.
+     */
+    public Optional<ShortUrl> insertIfAbsent(ShortUrl entity, byte[] originalUrlHash) {
+        return jdbcTemplate.query("""
+                        insert into short_url(id, original_url, short_code, created_at, click_count, original_url_hash)
+                        values (?, ?, ?, ?, ?, ?)
+                        on conflict (original_url_hash) where original_url_hash is not null do nothing
+                        returning %s
+                        """.formatted(COLUMNS), ROW_MAPPER,
+                entity.getId(), entity.getOriginalUrl(), entity.getShortCode(),
+                entity.getCreatedAt().atOffset(ZoneOffset.UTC), entity.getClickCount(), originalUrlHash)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Batched {@link #insertIfAbsent}: rows whose {@code original_url_hash} exists, also earlier in the batch, are
+     * skipped. Read the stored rows back with {@link #findAllByOriginalUrlHash}.
+     */
+    public void insertAllIfAbsent(List<ShortUrl> entities, List<byte[]> originalUrlHashes) {
+        List<Object[]> rows = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            ShortUrl e = entities.get(i);
+            rows.add(new Object[]{e.getId(), e.getOriginalUrl(), e.getShortCode(), e.getCreatedAt().atOffset(ZoneOffset.UTC),
+                    e.getClickCount(), originalUrlHashes.get(i)});
+        }
+        jdbcTemplate.batchUpdate("""
+                insert into short_url(id, original_url, short_code, created_at, click_count, original_url_hash)
+                values (?, ?, ?, ?, ?, ?)
+                on conflict (original_url_hash) where original_url_hash is not null do nothing
+                """, rows);
+    }
+
+    /**
+     * Marks the link deleted in one statement and returns its short code, empty if it is missing or already
+     * deleted. The row and its history are reclaimed later by {@code LinkReaper}; clearing the hash lets the
+     * URL be shortened again meanwhile.
+     */
+    public Optional<String> softDelete(long id) {
+        return jdbcTemplate.queryForList("""
+                        update short_url
+                        set deleted_at = now(), original_url_hash = null
+                        where id = ? and deleted_at is null
+                        returning short_code
+                        """, String.class, id)
+                .stream()
+                .findFirst();
+    }
+
+    public boolean existsLive(long id, String shortCode) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select exists(select 1 from short_url where id = ? and short_code = ? and deleted_at is null)",
+                Boolean.class, id, shortCode));
+    }
+
+    public Optional<ShortUrl> findByOriginalUrlHash(byte[] originalUrlHash) {
+        return jdbcTemplate.query("select %s from short_url where original_url_hash = ?".formatted(COLUMNS),
+                        ROW_MAPPER, (Object) originalUrlHash)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * @return the links holding any of the hashes, keyed by {@link ByteBuffer#wrap wrapped} hash
+     */
+    public Map<ByteBuffer, ShortUrl> findAllByOriginalUrlHash(List<byte[]> originalUrlHashes) {
+        Map<ByteBuffer, ShortUrl> found = new HashMap<>();
+        jdbcTemplate.query("select %s, original_url_hash from short_url where original_url_hash = any(?)".formatted(COLUMNS),
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bytea", originalUrlHashes.toArray(byte[][]::new))),
+                (RowCallbackHandler) rs -> found.put(ByteBuffer.wrap(rs.getBytes("original_url_hash")), toEntity(rs)));
+        return found;
+    }
+
+    /**
+     * Streams all live rows in id order through a server-side cursor. Runs in a transaction, joining the caller's
+     * if any, since PgJDBC otherwise ignores the fetch size and reads the whole result set into memory.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(int fetchSize, Consumer<ShortUrl> consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("select %s from short_url where deleted_at is null order by id".formatted(COLUMNS));
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(toEntity(rs)));
+    }
+
+    /**
+     * Reads the short codes of all live links in id order, one keyset page per query, so no snapshot is held for the whole scan.
+     * Rows inserted behind the cursor meanwhile are not returned.
+     */
+    public void forEachShortCode(int pageSize, Consumer<String> consumer) {
+        long[] lastId = {0};
+        int[] rows = new int[1];
+        do {
+            rows[0] = 0;
+            jdbcTemplate.query("select id, short_code from short_url where id > ? and deleted_at is null order by id limit ?",
+                    (RowCallbackHandler) rs -> {
+                        lastId[0] = rs.getLong(1);
+                        rows[0]++;
+                        consumer.accept(rs.getString(2));
+                    }, lastId[0], pageSize);
+        } while (rows[0] == pageSize);
+    }
+
+    /**
+     * Reads all live rows in id order, one keyset page per query, so no snapshot is held for the whole scan.
+     * Rows inserted behind the cursor meanwhile are not returned.
+     */
+    public void forEachLive(int pageSize, Consumer<ShortUrl> consumer) {
+        long[] lastId = {0};
+        int[] rows = new int[1];
+        do {
+            rows[0] = 0;
+            jdbcTemplate.query("select %s from short_url where id > ? and deleted_at is null order by id limit ?".formatted(COLUMNS),
+                    (RowCallbackHandler) rs -> {
+                        ShortUrl entity = toEntity(rs);
+                        lastId[0] = entity.getId();
+                        rows[0]++;
+                        consumer.accept(entity);
+                    }, lastId[0], pageSize);
+        } while (rows[0] == pageSize);
+    }
+
+    public void forEachCreatedSince(Instant since, Consumer<ShortUrl> consumer) {
+        jdbcTemplate.query("select %s from short_url where created_at >= ? and deleted_at is null".formatted(COLUMNS),
+                (RowCallbackHandler) rs -> consumer.accept(toEntity(rs)), since.atOffset(ZoneOffset.UTC));
+    }
+
+    public void forEachShortCodeCreatedSince(Instant since, Consumer<String> consumer) {
+        jdbcTemplate.query("select short_code from short_url where created_at >= ?",
+                (RowCallbackHandler) rs -> consumer.accept(rs.getString(1)), since.atOffset(ZoneOffset.UTC));
+    }
+
+    public void forEachShortCodeDeletedSince(Instant since, Consumer<String> consumer) {
+        jdbcTemplate.query("select short_code from short_url where deleted_at >= ?",
+                (RowCallbackHandler) rs -> consumer.accept(rs.getString(1)), since.atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * Planner estimate of the row count, free compared to {@code count(*)}; zero before the first analyze.
+     */
+    public long estimateCount() {
+        Long estimate = jdbcTemplate.queryForObject(
+                "select greatest(reltuples, 0)::bigint from pg_class where oid = 'short_url'::regclass", Long.class);
+        return estimate == null ? 0 : estimate;
+    }
+
+    private static ShortUrl toEntity(ResultSet rs) throws SQLException {
+        ShortUrl entity = new ShortUrl();
+        entity.setId(rs.getLong("id"));
+        entity.setOriginalUrl(rs.getString("original_url"));
+        entity.setShortCode(rs.getString("short_code"));
+        entity.setCreatedAt(rs.getObject("created_at", OffsetDateTime.class).toInstant());
+        entity.setClickCount(rs.getLong("click_count"));
+        entity.setLastAccessedAt(toInstant(rs.getObject("last_accessed_at", OffsetDateTime.class)));
+        entity.setExpiresAt(toInstant(rs.getObject("expires_at", OffsetDateTime.class)));
+        entity.setMaxClicks(rs.getObject("max_clicks", Long.class));
+        entity.setDeletedAt(toInstant(rs.getObject("deleted_at", OffsetDateTime.class)));
+        return entity;
+    }
+
+    private static Instant toInstant(OffsetDateTime value) {
+        return value == null ? null : value.toInstant();
+    }
+
+    private static OffsetDateTime utc(Instant value) {
+        return value == null ? null : value.atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,91 @@
+package com.ibarkhatov.urlshortener.repository;
+
+/**
+ * Native queries shared by {@link ShortUrlRepository} and the reactive redirect path. Soft-deleted links are
+ * left out of every result.
+ */
+public final class ShortUrlQueries {
+
+    /**
+     * Counts a click of a live link and returns it. The click that reaches {@code max_clicks} is still
+     * redirected and soft-deletes the link.
+     */
+    public static final String INCREMENT_AND_RETURN = """
+            with updated as (
+                update short_url
+                set click_count = click_count + 1,
+                    last_accessed_at = now(),
+                    deleted_at = case when click_count + 1 >= max_clicks then now() end
+                where id = :id and short_code = :code
+                  and deleted_at is null
+                  and (expires_at is null or expires_at > now())
+                  and (max_clicks is null or click_count < max_clicks)
+                returning id, short_code, last_accessed_at, original_url, expires_at, max_clicks
+            ), ins as (
+                insert into short_url_access(short_url_id, accessed_at)
+                select id, last_accessed_at from updated
+            ), minute as (
+                insert into short_url_click_minute(short_url_id, bucket_start, click_count, last_accessed_at)
+                select id, date_trunc('minute', last_accessed_at, 'UTC'), 1, last_accessed_at from updated
+                on conflict (bucket_start, short_url_id) do update
+                set click_count = short_url_click_minute.click_count + 1,
+                    last_accessed_at = greatest(short_url_click_minute.last_accessed_at, excluded.last_accessed_at)
+            ), hour as (
+                insert into short_url_click_hour(short_url_id, bucket_start, click_count, last_accessed_at)
+                select id, date_trunc('hour', last_accessed_at, 'UTC'), 1, last_accessed_at from updated
+                on conflict (bucket_start, short_url_id) do update
+                set click_count = short_url_click_hour.click_count + 1,
+                    last_accessed_at = greatest(short_url_click_hour.last_accessed_at, excluded.last_accessed_at)
+            )
+            select id as id, original_url as originalUrl, short_code as shortCode,
+                   expires_at as expiresAt, max_clicks as maxClicks
+            from updated
+            """;
+
+    public static final String TOP_BY_CLICK_COUNT = """
+            select s.id as id,
+                   s.short_code as shortCode,
+                   s.original_url as originalUrl,
+                   s.click_count as click_count,
+                   s.last_accessed_at as lastAccessedAt
+            from short_url s
+            where s.deleted_at is null
+            order by s.click_count desc
+            limit :limit
+            """;
+
+    public static final String TOP_BY_WINDOW_FROM_ROLLUPS = """
+            with clicks as (
+                select a.short_url_id, count(*) as clicks, max(a.accessed_at) as last_accessed_at
+                from short_url_access a
+                where (a.accessed_at >= :fromTs and a.accessed_at < :minuteFrom)
+                   or a.accessed_at >= :minuteTo
+                group by a.short_url_id
+                union all
+                select m.short_url_id, sum(m.click_count), max(m.last_accessed_at)
+                from short_url_click_minute m
+                where (m.bucket_start >= :minuteFrom and m.bucket_start < :hourFrom)
+                   or (m.bucket_start >= :hourTo and m.bucket_start < :minuteTo)
+                group by m.short_url_id
+                union all
+                select h.short_url_id, sum(h.click_count), max(h.last_accessed_at)
+                from short_url_click_hour h
+                where h.bucket_start >= :hourFrom and h.bucket_start < :hourTo
+                group by h.short_url_id
+            )
+            select s.id as id,
+                   s.short_code as shortCode,
+                   s.original_url as originalUrl,
+                   sum(c.clicks) as clickCount,
+                   max(c.last_accessed_at) as lastAccessedAt
+            from clicks c
+            join short_url s on s.id = c.short_url_id
+            where s.deleted_at is null
+            group by s.id, s.short_code, s.original_url
+            order by clickCount desc
+            limit :limit
+            """;
+
+    private ShortUrlQueries() {
+    }
+}
@@ -3,43 +3,47 @@ package com.ibarkhatov.urlshortener.repository;
 import com.ibarkhatov.urlshortener.domain.ShortUrl;
 import com.ibarkhatov.urlshortener.repository.projection.ShortUrlClickView;
 import com.ibarkhatov.urlshortener.repository.projection.TopItemView;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
 public interface ShortUrlRepository extends JpaRepository<ShortUrl, Long> {
-    @Query(value = """
-            with updated as (
-                update short_url
-                set click_count = click_count + 1,
-                    last_accessed_at = now()
-                where short_code = :code
-                returning id, last_accessed_at, original_url
-            ), ins as (
-                insert into short_url_access(short_url_id, accessed_at)
-                select id, last_accessed_at from updated
-            )
-            select id as id, original_url as originalUrl from updated
-            """, nativeQuery = true)
-    Optional<ShortUrlClickView> incrementAndReturn(@Param("code") String code);
+    List<ShortUrl> findByIdGreaterThanAndDeletedAtIsNullOrderByIdAsc(Long afterId, Limit limit);
 
+    @Query(value = ShortUrlQueries.INCREMENT_AND_RETURN, nativeQuery = true)
+    @Transactional
+    Optional<ShortUrlClickView> incrementAndReturn(@Param("id") long id, @Param("code") String code);
+
+    @Query(value = ShortUrlQueries.TOP_BY_CLICK_COUNT, nativeQuery = true)
+    List<TopItemView> findTopByClickCount(@Param("limit") int limit);
+
+    /**
+     * Most clicked links that can be served from the redirect cache: live and without a click limit.
+     */
     @Query(value = """
-            select s.short_code as shortCode,
+            select s.id as id,
                    s.original_url as originalUrl,
-                   s.click_count as click_count,
-                   s.last_accessed_at as lastAccessedAt
+                   s.short_code as shortCode,
+                   s.expires_at as expiresAt,
+                   s.max_clicks as maxClicks
             from short_url s
+            where s.deleted_at is null
+              and s.max_clicks is null
+              and (s.expires_at is null or s.expires_at > now())
             order by s.click_count desc
             limit :limit
             """, nativeQuery = true)
-    List<TopItemView> findTopByClickCount(@Param("limit") int limit);
+    List<ShortUrlClickView> findTopCacheable(@Param("limit") int limit);
 
     @Query(value = """
-            select s.short_code as shortCode,
+            select s.id as id,
+                   s.short_code as shortCode,
                    s.original_url as originalUrl,
                    count(a.id) as clickCount,
                    max(a.accessed_at) as lastAccessedAt
@@ -47,9 +51,23 @@ public interface ShortUrlRepository extends JpaRepository<ShortUrl, Long> {
             join short_url_access a
               on a.short_url_id = s.id
              and a.accessed_at >= :fromTs
-            group by s.short_code, s.original_url
+            where s.deleted_at is null
+            group by s.id, s.short_code, s.original_url
             order by clickCount desc
             limit :limit
             """, nativeQuery = true)
     List<TopItemView> findTopByWindow(@Param("fromTs") OffsetDateTime fromTs, @Param("limit") int limit);
+
+    /**
+     * Same result as {@link #findTopByWindow} computed from rollups: hour buckets in {@code [hourFrom, hourTo)},
+     * minute buckets in {@code [minuteFrom, hourFrom)} and {@code [hourTo, minuteTo)}, and raw access rows only
+     * for the ragged edges {@code [fromTs, minuteFrom)} and from {@code minuteTo} on.
+     */
+    @Query(value = ShortUrlQueries.TOP_BY_WINDOW_FROM_ROLLUPS, nativeQuery = true)
+    List<TopItemView> findTopByWindowFromRollups(@Param("fromTs") OffsetDateTime fromTs,
+                                                 @Param("minuteFrom") OffsetDateTime minuteFrom,
+                                                 @Param("hourFrom") OffsetDateTime hourFrom,
+                                                 @Param("hourTo") OffsetDateTime hourTo,
+                                                 @Param("minuteTo") OffsetDateTime minuteTo,
+                                                 @Param("limit") int limit);
 }
@@ -0,0 +1,109 @@
+package com.ibarkhatov.urlshortener.repository;
+
+import com.ibarkhatov.urlshortener.uniques.DaySketch;
+import com.ibarkhatov.urlshortener.uniques.HyperLogLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+@Repository
+@RequiredArgsConstructor
+public class UniqueVisitorRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Merges the sketches into the stored ones: new days of live links are inserted as they are, existing
+     * days are locked, merged and written back. Sketches must be sorted by link and day, so concurrent merges
+     * lock rows in the same order. Must run inside a transaction.
+     */
+    public void merge(List<DaySketch> sketches) {
+        StringJoiner values = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(sketches.size() * 3);
+        for (DaySketch sketch : sketches) {
+            values.add("(?::bigint, ?::date, ?::bytea)");
+            args.add(sketch.shortUrlId());
+            args.add(sketch.day());
+            args.add(sketch.sketch().toBytes());
+        }
+        Set<Key> inserted = new HashSet<>();
+        jdbcTemplate.query("""
+                insert into short_url_visitor_day(short_url_id, day, sketch)
+                select v.short_url_id, v.day, v.sketch
+                from (values %s) as v(short_url_id, day, sketch)
+                join short_url s on s.id = v.short_url_id and s.deleted_at is null
+                order by v.short_url_id, v.day
+                on conflict (short_url_id, day) do nothing
+                returning short_url_id, day
+                """.formatted(values), (RowCallbackHandler) rs -> inserted.add(key(rs.getLong(1), rs.getObject(2, LocalDate.class))),
+                args.toArray());
+
+        Map<Key, HyperLogLog> existing = new HashMap<>();
+        StringJoiner keys = new StringJoiner(", ");
+        List<Object> keyArgs = new ArrayList<>();
+        for (DaySketch sketch : sketches) {
+            Key key = key(sketch.shortUrlId(), sketch.day());
+            if (!inserted.contains(key)) {
+                existing.put(key, sketch.sketch());
+                keys.add("(?::bigint, ?::date)");
+                keyArgs.add(sketch.shortUrlId());
+                keyArgs.add(sketch.day());
+            }
+        }
+        if (existing.isEmpty()) {
+            return;
+        }
+        List<Object[]> updates = new ArrayList<>(existing.size());
+        jdbcTemplate.query("""
+                select t.short_url_id, t.day, t.sketch
+                from short_url_visitor_day t
+                join (values %s) as v(short_url_id, day) on t.short_url_id = v.short_url_id and t.day = v.day
+                order by t.short_url_id, t.day
+                for update of t
+                """.formatted(keys), (RowCallbackHandler) rs -> {
+            long shortUrlId = rs.getLong(1);
+            LocalDate day = rs.getObject(2, LocalDate.class);
+            HyperLogLog stored = HyperLogLog.fromBytes(rs.getBytes(3));
+            stored.merge(existing.get(key(shortUrlId, day)));
+            updates.add(new Object[]{stored.toBytes(), shortUrlId, day});
+        }, keyArgs.toArray());
+        jdbcTemplate.batchUpdate("update short_url_visitor_day set sketch = ? where short_url_id = ? and day = ?", updates);
+    }
+
+    /**
+     * Stored sketches of the links from {@code fromDay} on, merged per link. Links without visitors are missing.
+     */
+    public Map<Long, HyperLogLog> findMerged(Collection<Long> shortUrlIds, LocalDate fromDay) {
+        Map<Long, HyperLogLog> merged = new HashMap<>();
+        jdbcTemplate.query("select short_url_id, sketch from short_url_visitor_day where short_url_id = any(?) and day >= ?",
+                (RowCallbackHandler) rs -> {
+                    HyperLogLog sketch = HyperLogLog.fromBytes(rs.getBytes(2));
+                    merged.merge(rs.getLong(1), sketch, (a, b) -> {
+                        a.merge(b);
+                        return a;
+                    });
+                }, shortUrlIds.toArray(Long[]::new), fromDay);
+        return merged;
+    }
+
+    public int deleteBefore(LocalDate day) {
+        return jdbcTemplate.update("delete from short_url_visitor_day where day < ?", day);
+    }
+
+    private static Key key(long shortUrlId, LocalDate day) {
+        return new Key(shortUrlId, day);
+    }
+
+    private record Key(long shortUrlId, LocalDate day) {
+    }
+}
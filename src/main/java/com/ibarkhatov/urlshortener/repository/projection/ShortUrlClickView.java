@@ -1,7 +1,15 @@
 package com.ibarkhatov.urlshortener.repository.projection;
 
+import java.time.Instant;
+
 public interface ShortUrlClickView {
     Long getId();
 
     String getOriginalUrl();
+
+    String getShortCode();
+
+    Instant getExpiresAt();
+
+    Long getMaxClicks();
 }
@@ -3,6 +3,8 @@ package com.ibarkhatov.urlshortener.repository.projection;
 import java.time.Instant;
 
 public interface TopItemView {
+    Long getId();
+
     String getShortCode();
 
     String getOriginalUrl();
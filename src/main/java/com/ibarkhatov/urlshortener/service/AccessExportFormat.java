@@ -0,0 +1,34 @@
+package com.ibarkhatov.urlshortener.service;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+public enum AccessExportFormat {
+    CSV(MediaType.parseMediaType("text/csv"), "csv"),
+    NDJSON(UrlImportService.NDJSON, "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    AccessExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static AccessExportFormat parse(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported export format: " + value);
+        }
+    }
+}
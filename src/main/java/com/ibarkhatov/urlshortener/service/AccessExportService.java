@@ -0,0 +1,49 @@
+package com.ibarkhatov.urlshortener.service;
+
+import com.ibarkhatov.urlshortener.config.AccessExportProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.repository.AccessExportRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Exports {@code short_url_access} in slices of {@code slice}, one short COPY statement each, so no snapshot
+ * is held for the whole export and vacuum of the partitions being read is only held back for one slice.
+ * Slices are read at different times; rows of a slice that is still being written to may be missing. Each slice
+ * is read from every shard in turn, so rows are grouped by slice, not ordered by time within one.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AccessExportService {
+    private final AccessExportRepository repository;
+    private final AccessExportProperties properties;
+    private final Shards shards;
+
+    public void export(Instant from, Instant to, AccessExportFormat format, OutputStream out) throws IOException {
+        long rows = 0;
+        Instant started = Instant.now();
+        try {
+            for (Instant sliceFrom = from; sliceFrom.isBefore(to); sliceFrom = sliceFrom.plus(properties.slice())) {
+                Instant sliceTo = sliceFrom.plus(properties.slice());
+                for (int shard = 0; shard < shards.count(); shard++) {
+                    try (Shards.Scope ignored = shards.bind(shard)) {
+                        rows += repository.copyAccesses(sliceFrom, sliceTo.isBefore(to) ? sliceTo : to, format,
+                                sliceFrom.equals(from) && shard == 0, out);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Export of accesses failed after " + rows + " rows", e);
+        }
+        log.info("Exported accesses: from={}, to={}, format={}, rows={}, took={}",
+                from, to, format, rows, Duration.between(started, Instant.now()));
+    }
+}
@@ -0,0 +1,154 @@
+package com.ibarkhatov.urlshortener.service;
+
+import com.ibarkhatov.urlshortener.bloom.ShortCodeBloomFilter;
+import com.ibarkhatov.urlshortener.codec.ShortCodeCodec;
+import com.ibarkhatov.urlshortener.config.UrlDedupProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.domain.ShortUrl;
+import com.ibarkhatov.urlshortener.dto.BatchItemResponse;
+import com.ibarkhatov.urlshortener.dto.CreateUrlRequest;
+import com.ibarkhatov.urlshortener.mapper.ShortUrlMapper;
+import com.ibarkhatov.urlshortener.repository.ShortUrlIdAllocator;
+import com.ibarkhatov.urlshortener.repository.ShortUrlJdbcRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BulkUrlService {
+    private final ShortUrlJdbcRepository jdbcRepository;
+    private final ShortCodeBloomFilter shortCodeFilter;
+    private final ShortUrlIdAllocator idAllocator;
+    private final ShortCodeCodec codec;
+    private final ShortUrlMapper mapper;
+    private final Validator validator;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+    private final UrlDedupProperties dedupProperties;
+
+    /**
+     * Creates every valid request with one batched insert. Invalid requests are reported in place and do not
+     * affect the others; {@code firstIndex} is the position of the first request in the whole upload. The whole
+     * batch goes to one shard, the next batch to the next shard, except for the URLs deduplicated as by
+     * {@link UrlShorteningService#createShortUrl}: those go to the shard owning their hash and get the existing
+     * link if there is one.
+     */
+    public List<BatchItemResponse> createAll(List<CreateUrlRequest> requests, int firstIndex) {
+        BatchItemResponse[] results = new BatchItemResponse[requests.size()];
+        byte[][] hashes = new byte[requests.size()][];
+        List<Integer> plainPositions = new ArrayList<>(requests.size());
+        Map<Integer, List<Integer>> dedupedPositions = new TreeMap<>();
+        int valid = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            CreateUrlRequest request = requests.get(i);
+            String error = request == null ? "Empty item" : validate(request);
+            if (error != null) {
+                results[i] = new BatchItemResponse(firstIndex + i, null, error);
+                continue;
+            }
+            valid++;
+            if (dedupProperties.enabled() && request.expiresAt() == null && request.maxClicks() == null) {
+                hashes[i] = DigestUtils.sha256(UrlNormalizer.normalize(request.originalUrl()));
+                dedupedPositions.computeIfAbsent(shards.forHash(hashes[i]), shard -> new ArrayList<>()).add(i);
+            } else {
+                plainPositions.add(i);
+            }
+        }
+
+        if (!plainPositions.isEmpty()) {
+            List<ShortUrl> entities = shards.on(shards.next(), () -> transactionTemplate.execute(status ->
+                    insert(requests, plainPositions)));
+            report(results, plainPositions, entities, firstIndex);
+        }
+        dedupedPositions.forEach((shard, positions) -> {
+            List<ShortUrl> entities = shards.on(shard, () -> transactionTemplate.execute(status ->
+                    insertOrFindExisting(requests, positions, hashes)));
+            report(results, positions, entities, firstIndex);
+        });
+        log.debug("Created batch: items={}, created={}", requests.size(), valid);
+        return Arrays.asList(results);
+    }
+
+    private void report(BatchItemResponse[] results, List<Integer> positions, List<ShortUrl> entities, int firstIndex) {
+        entities.forEach(entity -> shortCodeFilter.add(entity.getShortCode()));
+        for (int i = 0; i < positions.size(); i++) {
+            int position = positions.get(i);
+            results[position] = new BatchItemResponse(firstIndex + position, mapper.toDto(entities.get(i)), null);
+        }
+    }
+
+    private List<ShortUrl> insert(List<CreateUrlRequest> requests, List<Integer> positions) {
+        List<ShortUrl> entities = newEntities(requests, positions);
+        jdbcRepository.insertAll(entities);
+        return entities;
+    }
+
+    /**
+     * Batched counterpart of the single create's insert-on-conflict: inserts the URLs not stored yet, then reads
+     * back the link of every hash, so repeated URLs within the batch share one row too. The retry covers a
+     * conflicting row being deleted between the insert and the lookup.
+     */
+    private List<ShortUrl> insertOrFindExisting(List<CreateUrlRequest> requests, List<Integer> positions, byte[][] hashes) {
+        List<ShortUrl> entities = newEntities(requests, positions);
+        List<byte[]> entityHashes = positions.stream().map(position -> hashes[position]).toList();
+        Map<ByteBuffer, ShortUrl> stored = new HashMap<>();
+        List<Integer> missing = IntStream.range(0, entities.size()).boxed().toList();
+        for (int attempt = 0; attempt < 3 && !missing.isEmpty(); attempt++) {
+            List<byte[]> missingHashes = missing.stream().map(entityHashes::get).toList();
+            jdbcRepository.insertAllIfAbsent(missing.stream().map(entities::get).toList(), missingHashes);
+            stored.putAll(jdbcRepository.findAllByOriginalUrlHash(missingHashes));
+            missing = missing.stream().filter(i -> !stored.containsKey(ByteBuffer.wrap(entityHashes.get(i)))).toList();
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Neither inserted nor found link for " + entities.get(missing.get(0)).getOriginalUrl());
+        }
+        return entityHashes.stream().map(hash -> stored.get(ByteBuffer.wrap(hash))).toList();
+    }
+
+    private List<ShortUrl> newEntities(List<CreateUrlRequest> requests, List<Integer> positions) {
+        long[] ids = idAllocator.next(positions.size());
+        Instant now = Instant.now();
+        List<ShortUrl> entities = new ArrayList<>(positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            CreateUrlRequest request = requests.get(positions.get(i));
+            ShortUrl entity = new ShortUrl();
+            entity.setId(ids[i]);
+            entity.setOriginalUrl(request.originalUrl());
+            entity.setShortCode(codec.encode(ids[i]));
+            entity.setCreatedAt(now);
+            entity.setExpiresAt(request.expiresAt());
+            entity.setMaxClicks(request.maxClicks());
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    private String validate(CreateUrlRequest request) {
+        Set<ConstraintViolation<CreateUrlRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+}
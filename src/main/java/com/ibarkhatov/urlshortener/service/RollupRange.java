@@ -0,0 +1,44 @@
+package com.ibarkhatov.urlshortener.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Split of {@code [from, now]} into the parts answered by raw rows, minute buckets and hour buckets:
+ * raw {@code [from, minuteFrom)}, minutes {@code [minuteFrom, hourFrom)}, hours {@code [hourFrom, hourTo)},
+ * minutes {@code [hourTo, minuteTo)} and raw from {@code minuteTo} on. Empty parts collapse to zero width.
+ * When {@code from} is older than the minute retention, its partial hour is read from raw rows instead, since
+ * its minute buckets may already be deleted.
+ */
+public record RollupRange(
+        Instant from,
+        Instant minuteFrom,
+        Instant hourFrom,
+        Instant hourTo,
+        Instant minuteTo
+) {
+
+    public static RollupRange of(Instant from, Instant now, Duration minuteRetention) {
+        Instant minuteFrom = ceil(from, ChronoUnit.MINUTES);
+        Instant minuteTo = now.truncatedTo(ChronoUnit.MINUTES);
+        if (!minuteFrom.isBefore(minuteTo)) {
+            return new RollupRange(from, from, from, from, from);
+        }
+        Instant hourFrom = ceil(from, ChronoUnit.HOURS);
+        Instant hourTo = now.truncatedTo(ChronoUnit.HOURS);
+        if (!hourFrom.isBefore(hourTo)) {
+            hourFrom = minuteTo;
+            hourTo = minuteTo;
+        }
+        if (minuteFrom.isBefore(now.minus(minuteRetention))) {
+            minuteFrom = hourFrom;
+        }
+        return new RollupRange(from, minuteFrom, hourFrom, hourTo, minuteTo);
+    }
+
+    private static Instant ceil(Instant instant, ChronoUnit unit) {
+        Instant truncated = instant.truncatedTo(unit);
+        return truncated.equals(instant) ? truncated : truncated.plus(1, unit);
+    }
+}
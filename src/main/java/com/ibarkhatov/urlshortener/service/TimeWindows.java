@@ -0,0 +1,23 @@
+package com.ibarkhatov.urlshortener.service;
+
+import java.time.Duration;
+
+public final class TimeWindows {
+
+    private TimeWindows() {
+    }
+
+    public static Duration parse(String window) {
+        String v = window.trim().toLowerCase();
+        try {
+            long value = Long.parseLong(v.substring(0, v.length() - 1).trim());
+            if (v.endsWith("d")) return Duration.ofDays(value);
+            if (v.endsWith("h")) return Duration.ofHours(value);
+            if (v.endsWith("m")) return Duration.ofMinutes(value);
+            if (v.endsWith("s")) return Duration.ofSeconds(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid window: " + window + ". Use formats like 7d, 24h, 30m, 10s");
+        }
+        throw new IllegalArgumentException("Invalid window: " + window + ". Use formats like 7d, 24h, 30m, 10s");
+    }
+}
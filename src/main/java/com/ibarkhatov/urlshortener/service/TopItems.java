@@ -0,0 +1,22 @@
+package com.ibarkhatov.urlshortener.service;
+
+import com.ibarkhatov.urlshortener.repository.projection.TopItemView;
+
+import java.util.Comparator;
+import java.util.List;
+
+final class TopItems {
+    private TopItems() {
+    }
+
+    /**
+     * Global top-N from the top-N of every shard: a link of the global top is also in the top of its own shard.
+     */
+    static List<TopItemView> merge(List<List<TopItemView>> perShard, int limit) {
+        return perShard.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingLong(TopItemView::getClickCount).reversed())
+                .limit(limit)
+                .toList();
+    }
+}
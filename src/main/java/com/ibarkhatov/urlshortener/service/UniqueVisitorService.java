@@ -0,0 +1,105 @@
+package com.ibarkhatov.urlshortener.service;
+
+import com.ibarkhatov.urlshortener.codec.ShortCodeCodec;
+import com.ibarkhatov.urlshortener.config.AccessPartitionProperties;
+import com.ibarkhatov.urlshortener.config.UniqueVisitorProperties;
+import com.ibarkhatov.urlshortener.datasource.ShardReads;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.dto.TopUrlResponse;
+import com.ibarkhatov.urlshortener.dto.UniqueVisitorsResponse;
+import com.ibarkhatov.urlshortener.repository.ShortUrlJdbcRepository;
+import com.ibarkhatov.urlshortener.repository.UniqueVisitorRepository;
+import com.ibarkhatov.urlshortener.uniques.HyperLogLog;
+import com.ibarkhatov.urlshortener.uniques.UniqueVisitorTracker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.logging.log4j.util.Strings;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Distinct visitor estimates from the per-day sketches, merged with the ones this node has not flushed yet.
+ * Windows are rounded up to whole UTC days ending today, so {@code 1h} counts today's visitors.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UniqueVisitorService {
+    private final UniqueVisitorRepository repository;
+    private final ShortUrlJdbcRepository jdbcRepository;
+    private final UniqueVisitorTracker tracker;
+    private final ShortCodeCodec codec;
+    private final Shards shards;
+    private final ShardReads shardReads;
+    private final UniqueVisitorProperties properties;
+    private final AccessPartitionProperties accessPartitionProperties;
+
+    public Optional<UniqueVisitorsResponse> uniques(String shortCode, String window) {
+        long id = codec.decode(shortCode);
+        int shard = id == ShortCodeCodec.INVALID ? Shards.NONE : shards.shardOf(id);
+        if (shard == Shards.NONE || !shardReads.on(shard, () -> jdbcRepository.existsLive(id, shortCode))) {
+            return Optional.empty();
+        }
+        LocalDate to = LocalDate.now(ZoneOffset.UTC);
+        LocalDate from = firstDay(window, to);
+        HyperLogLog merged = shardReads.on(shard, () -> repository.findMerged(List.of(id), from))
+                .getOrDefault(id, new HyperLogLog(properties.precision()));
+        tracker.mergePending(id, from, to, merged);
+        log.debug("Unique visitors: code={}, from={}, estimate={}", shortCode, from, merged.estimate());
+        return Optional.of(new UniqueVisitorsResponse(shortCode, from, to, merged.estimate()));
+    }
+
+    /**
+     * Adds the unique visitor estimate over the window to each item; without a window over the access retention,
+     * which is as far back as sketches are kept. The sketches are read from all shards in parallel.
+     */
+    public List<TopUrlResponse> withUniqueVisitors(List<TopUrlResponse> top, String window) {
+        LocalDate to = LocalDate.now(ZoneOffset.UTC);
+        LocalDate from = Strings.isBlank(window)
+                ? to.minusDays(accessPartitionProperties.retention().toDays())
+                : firstDay(window, to);
+        Map<String, Long> ids = new LinkedHashMap<>();
+        for (TopUrlResponse item : top) {
+            long id = codec.decode(item.shortCode());
+            if (id != ShortCodeCodec.INVALID && shards.shardOf(id) != Shards.NONE) {
+                ids.put(item.shortCode(), id);
+            }
+        }
+        Map<Long, HyperLogLog> merged = new HashMap<>();
+        if (!ids.isEmpty()) {
+            shardReads.gather(shard -> {
+                List<Long> own = ids.values().stream().filter(id -> shards.shardOf(id) == shard).toList();
+                return own.isEmpty() ? Map.<Long, HyperLogLog>of() : repository.findMerged(own, from);
+            }).forEach(merged::putAll);
+        }
+        List<TopUrlResponse> result = new ArrayList<>(top.size());
+        for (TopUrlResponse item : top) {
+            Long id = ids.get(item.shortCode());
+            if (id == null) {
+                result.add(item);
+                continue;
+            }
+            HyperLogLog sketch = merged.getOrDefault(id, new HyperLogLog(properties.precision()));
+            tracker.mergePending(id, from, to, sketch);
+            result.add(new TopUrlResponse(item.shortCode(), item.originalUrl(), item.clickCount(), item.lastAccessedAt(),
+                    sketch.estimate()));
+        }
+        return result;
+    }
+
+    private static LocalDate firstDay(String window, LocalDate today) {
+        Duration duration = TimeWindows.parse(window);
+        long seconds = Duration.ofDays(1).toSeconds();
+        long days = Math.max(1, (duration.toSeconds() + seconds - 1) / seconds);
+        return today.minusDays(days - 1);
+    }
+}
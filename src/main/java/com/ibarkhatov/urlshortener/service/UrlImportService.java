@@ -0,0 +1,108 @@
+package com.ibarkhatov.urlshortener.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibarkhatov.urlshortener.config.UrlImportProperties;
+import com.ibarkhatov.urlshortener.dto.BatchItemResponse;
+import com.ibarkhatov.urlshortener.dto.CreateUrlRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads NDJSON ({@code {"originalUrl": "..."}} per line) or CSV (original URL in the first column, optional
+ * header) line by line, creates links chunk by chunk and writes one NDJSON result per input line as soon as
+ * its chunk is committed. Memory use depends on the chunk size only, not on the upload size.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UrlImportService {
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final BulkUrlService bulkUrlService;
+    private final ObjectMapper objectMapper;
+    private final UrlImportProperties properties;
+
+    public void importUrls(InputStream in, MediaType contentType, OutputStream out) throws IOException {
+        boolean csv = MediaType.parseMediaType("text/csv").isCompatibleWith(contentType);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<CreateUrlRequest> chunk = new ArrayList<>(properties.chunkSize());
+        Map<Integer, String> parseErrors = new HashMap<>();
+        int index = 0;
+        int chunkStart = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || (csv && index == 0 && isCsvHeader(line))) {
+                continue;
+            }
+            try {
+                chunk.add(csv ? new CreateUrlRequest(parseCsvFirstColumn(line)) : objectMapper.readValue(line, CreateUrlRequest.class));
+            } catch (JsonProcessingException e) {
+                chunk.add(null);
+                parseErrors.put(index, "Malformed line: " + e.getOriginalMessage());
+            }
+            index++;
+            if (chunk.size() == properties.chunkSize()) {
+                writeChunk(chunk, chunkStart, parseErrors, out);
+                chunkStart = index;
+            }
+        }
+        writeChunk(chunk, chunkStart, parseErrors, out);
+        log.info("Imported lines={}", index);
+    }
+
+    private void writeChunk(List<CreateUrlRequest> chunk, int chunkStart, Map<Integer, String> parseErrors,
+                            OutputStream out) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        for (BatchItemResponse item : bulkUrlService.createAll(chunk, chunkStart)) {
+            String parseError = parseErrors.remove(item.index());
+            BatchItemResponse result = parseError == null ? item : new BatchItemResponse(item.index(), null, parseError);
+            out.write(objectMapper.writeValueAsBytes(result));
+            out.write('\n');
+        }
+        out.flush();
+        chunk.clear();
+    }
+
+    private static boolean isCsvHeader(String line) {
+        String first = parseCsvFirstColumn(line).trim();
+        return first.equalsIgnoreCase("originalUrl") || first.equalsIgnoreCase("original_url");
+    }
+
+    private static String parseCsvFirstColumn(String line) {
+        if (!line.startsWith("\"")) {
+            int comma = line.indexOf(',');
+            return comma < 0 ? line : line.substring(0, comma);
+        }
+        StringBuilder value = new StringBuilder();
+        for (int i = 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    break;
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        return value.toString();
+    }
+}
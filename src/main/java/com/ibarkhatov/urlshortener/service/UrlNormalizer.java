@@ -0,0 +1,49 @@
+package com.ibarkhatov.urlshortener.service;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+
+/**
+ * Canonical form of a URL for deduplication: scheme and host are case-insensitive, a default port and an empty
+ * path carry no meaning. Path, query and fragment are kept as given since servers may treat them differently.
+ */
+public final class UrlNormalizer {
+
+    private UrlNormalizer() {
+    }
+
+    public static String normalize(String url) {
+        URI uri;
+        try {
+            uri = new URI(url.trim());
+        } catch (URISyntaxException e) {
+            return url.trim();
+        }
+        if (uri.isOpaque() || uri.getScheme() == null || uri.getRawAuthority() == null) {
+            return uri.toString();
+        }
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(url.length()).append(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            normalized.append(uri.getRawUserInfo()).append('@');
+        }
+        normalized.append(uri.getHost() == null
+                ? uri.getRawAuthority().toLowerCase(Locale.ROOT)
+                : uri.getHost().toLowerCase(Locale.ROOT));
+        int port = uri.getPort();
+        if (uri.getHost() != null && port != -1
+                && !(port == 80 && scheme.equals("http")) && !(port == 443 && scheme.equals("https"))) {
+            normalized.append(':').append(port);
+        }
+        String path = uri.getRawPath();
+        normalized.append(path == null || path.isEmpty() ? "/" : path);
+        if (uri.getRawQuery() != null) {
+            normalized.append('?').append(uri.getRawQuery());
+        }
+        if (uri.getRawFragment() != null) {
+            normalized.append('#').append(uri.getRawFragment());
+        }
+        return normalized.toString();
+    }
+}
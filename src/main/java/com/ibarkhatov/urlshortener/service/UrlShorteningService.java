@@ -1,103 +1,261 @@
 package com.ibarkhatov.urlshortener.service;
 
+import com.ibarkhatov.urlshortener.bloom.ShortCodeBloomFilter;
+import com.ibarkhatov.urlshortener.cache.CachedRedirect;
+import com.ibarkhatov.urlshortener.cache.RedirectCache;
+import com.ibarkhatov.urlshortener.codec.ShortCodeCodec;
+import com.ibarkhatov.urlshortener.config.ClickRollupProperties;
+import com.ibarkhatov.urlshortener.config.UrlDedupProperties;
+import com.ibarkhatov.urlshortener.config.UrlListingProperties;
+import com.ibarkhatov.urlshortener.datasource.ShardReads;
+import com.ibarkhatov.urlshortener.datasource.Shards;
 import com.ibarkhatov.urlshortener.domain.ShortUrl;
 import com.ibarkhatov.urlshortener.dto.CreateUrlRequest;
 import com.ibarkhatov.urlshortener.dto.TopUrlResponse;
+import com.ibarkhatov.urlshortener.dto.UrlPageResponse;
 import com.ibarkhatov.urlshortener.dto.UrlResponse;
 import com.ibarkhatov.urlshortener.mapper.ShortUrlMapper;
 import com.ibarkhatov.urlshortener.mapper.TopUrlMapper;
+import com.ibarkhatov.urlshortener.repository.ShortUrlIdAllocator;
+import com.ibarkhatov.urlshortener.repository.ShortUrlJdbcRepository;
 import com.ibarkhatov.urlshortener.repository.ShortUrlRepository;
 import com.ibarkhatov.urlshortener.repository.projection.TopItemView;
+import com.ibarkhatov.urlshortener.snapshot.RedirectSnapshotStore;
+import com.ibarkhatov.urlshortener.tracking.ClickTracker;
+import com.ibarkhatov.urlshortener.trending.TrendingTracker;
+import com.ibarkhatov.urlshortener.uniques.UniqueVisitorTracker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.logging.log4j.util.Strings;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class UrlShorteningService {
     private final ShortUrlRepository repository;
+    private final ShortUrlJdbcRepository jdbcRepository;
+    private final Shards shards;
+    private final ShardReads shardReads;
+    private final ShortUrlIdAllocator idAllocator;
+    private final ShortCodeCodec codec;
     private final ShortUrlMapper mapper;
     private final TopUrlMapper topUrlMapper;
+    private final RedirectCache redirectCache;
+    private final RedirectSnapshotStore redirectSnapshot;
+    private final ShortCodeBloomFilter shortCodeFilter;
+    private final ClickTracker clickTracker;
+    private final UniqueVisitorTracker uniqueVisitors;
+    private final UrlListingProperties listingProperties;
+    private final TrendingTracker trendingTracker;
+    private final UrlDedupProperties dedupProperties;
+    private final ClickRollupProperties rollupProperties;
 
-    @Transactional
+    /**
+     * New links go to the shards round robin; a deduplicated URL always goes to the shard owning its hash, so the
+     * unique index of that shard keeps it to one row.
+     */
     public UrlResponse createShortUrl(CreateUrlRequest request) {
-        log.info("Create url");
+        log.debug("Create url");
+        // A limited link is private to its creator, so only unlimited ones are shared through deduplication
+        byte[] hash = dedupProperties.enabled() && request.expiresAt() == null && request.maxClicks() == null
+                ? DigestUtils.sha256(UrlNormalizer.normalize(request.originalUrl()))
+                : null;
+        return shards.on(hash == null ? shards.next() : shards.forHash(hash), () -> create(request, hash));
+    }
+
+    private UrlResponse create(CreateUrlRequest request, byte[] originalUrlHash) {
+        long id = idAllocator.next();
+
         ShortUrl entity = new ShortUrl();
+        entity.setId(id);
         entity.setOriginalUrl(request.originalUrl());
+        entity.setShortCode(codec.encode(id));
         entity.setClickCount(0);
+        entity.setExpiresAt(request.expiresAt());
+        entity.setMaxClicks(request.maxClicks());
 
+        if (originalUrlHash != null) {
+            entity.setCreatedAt(Instant.now());
+            ShortUrl stored = insertOrFindExisting(entity, originalUrlHash);
+            shortCodeFilter.add(stored.getShortCode());
+            log.debug("Created or found id={} code={}", stored.getId(), stored.getShortCode());
+            return mapper.toDto(stored);
+        }
         ShortUrl saved = repository.save(entity);
-
-        byte[] idBytes = ByteBuffer.allocate(Long.BYTES).putLong(saved.getId()).array();
-        String shortCode = Base64.encodeBase64URLSafeString(idBytes);
-        saved.setShortCode(shortCode);
-        saved = repository.save(saved);
-        log.info("Created id={} code={}", saved.getId(), saved.getShortCode());
+        shortCodeFilter.add(saved.getShortCode());
+        log.debug("Created id={} code={}", saved.getId(), saved.getShortCode());
 
         return mapper.toDto(saved);
     }
 
-    @Transactional
-    public Optional<String> resolveAndTrack(String shortCode) {
-        log.info("Resolve code={}", shortCode);
-        return repository.incrementAndReturn(shortCode)
+    /**
+     * Insert-on-conflict keeps concurrent creates of one URL to a single row. The retry covers the conflicting
+     * row being deleted between the insert and the lookup.
+     */
+    private ShortUrl insertOrFindExisting(ShortUrl entity, byte[] hash) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Optional<ShortUrl> inserted = jdbcRepository.insertIfAbsent(entity, hash);
+            if (inserted.isPresent()) {
+                return inserted.get();
+            }
+            Optional<ShortUrl> existing = jdbcRepository.findByOriginalUrlHash(hash);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+        }
+        throw new IllegalStateException("Neither inserted nor found link for " + entity.getOriginalUrl());
+    }
+
+    /**
+     * Links with a click limit are never cached, so every click of theirs is counted against the limit by the
+     * database. Expiry is checked against cached entries too. {@code visitorHash} feeds the unique visitor
+     * sketches, see {@link UniqueVisitorTracker#visitorHash}.
+     */
+    public Optional<String> resolveAndTrack(String shortCode, long visitorHash) {
+        log.debug("Resolve code={}", shortCode);
+        CachedRedirect cached = redirectCache.get(shortCode);
+        if (cached != null && cached.isExpired(Instant.now())) {
+            log.debug("Expired code={}", shortCode);
+            redirectCache.evict(shortCode);
+            return Optional.empty();
+        }
+        if (cached != null) {
+            clickTracker.record(cached.id());
+            uniqueVisitors.record(cached.id(), visitorHash);
+            trendingTracker.record(shortCode, cached.originalUrl());
+            log.debug("Resolved from cache id={} code={}", cached.id(), shortCode);
+            return Optional.of(cached.originalUrl());
+        }
+        long id = codec.decode(shortCode);
+        if (id == ShortCodeCodec.INVALID || shards.shardOf(id) == Shards.NONE) {
+            log.debug("Invalid code={}", shortCode);
+            return Optional.empty();
+        }
+        if (!shortCodeFilter.mightContain(shortCode)) {
+            log.debug("Unknown code={}", shortCode);
+            return Optional.empty();
+        }
+        CachedRedirect snapshotted = redirectSnapshot.get(shortCode);
+        if (snapshotted != null) {
+            redirectCache.put(shortCode, snapshotted);
+            clickTracker.record(snapshotted.id());
+            uniqueVisitors.record(snapshotted.id(), visitorHash);
+            trendingTracker.record(shortCode, snapshotted.originalUrl());
+            log.debug("Resolved from snapshot id={} code={}", snapshotted.id(), shortCode);
+            return Optional.of(snapshotted.originalUrl());
+        }
+        Optional<String> resolved = shards.on(shards.shardOf(id), () -> repository.incrementAndReturn(id, shortCode))
                 .map(shortUrl -> {
-                    log.info("Resolved id={} code={}", shortUrl.getId(), shortCode);
+                    log.debug("Resolved id={} code={}", shortUrl.getId(), shortCode);
+                    uniqueVisitors.record(shortUrl.getId(), visitorHash);
+                    if (shortUrl.getMaxClicks() == null) {
+                        redirectCache.put(shortCode,
+                                new CachedRedirect(shortUrl.getId(), shortUrl.getOriginalUrl(), shortUrl.getExpiresAt()));
+                    }
+                    trendingTracker.record(shortCode, shortUrl.getOriginalUrl());
                     return shortUrl.getOriginalUrl();
                 });
+        if (resolved.isEmpty()) {
+            // Also counts links that expired or were deleted, which the filter keeps until its next rebuild
+            shortCodeFilter.recordFalsePositive();
+        }
+        return resolved;
     }
 
-    @Transactional(readOnly = true)
-    public List<UrlResponse> listAll() {
-        return repository.findAll().stream()
+    /**
+     * Reads the page after the cursor from every shard in parallel, each in a read-only transaction, and merges
+     * them by id.
+     */
+    public UrlPageResponse listPage(Long cursor, Integer limit) {
+        int pageSize = limit == null
+                ? listingProperties.defaultLimit()
+                : Math.min(Math.max(limit, 1), listingProperties.maxLimit());
+        long after = cursor == null ? 0L : cursor;
+        List<ShortUrl> rows = shardReads.gather(shard -> repository.findByIdGreaterThanAndDeletedAtIsNullOrderByIdAsc(after, Limit.of(pageSize + 1)))
+                .stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(ShortUrl::getId))
+                .limit(pageSize + 1)
+                .toList();
+        List<UrlResponse> items = rows.stream()
+                .limit(pageSize)
                 .map(mapper::toDto)
                 .toList();
+        Long nextCursor = rows.size() > pageSize ? items.get(items.size() - 1).id() : null;
+        return new UrlPageResponse(items, nextCursor);
+    }
+
+    /**
+     * Streams shard by shard; ids grow with the shard, so the stream is still in id order.
+     */
+    public void streamAll(Consumer<UrlResponse> consumer) {
+        shards.forEach(shard -> jdbcRepository.streamAll(listingProperties.fetchSize(),
+                entity -> consumer.accept(mapper.toDto(entity))));
     }
 
-    @Transactional
+    /**
+     * Soft-deletes the link; its access history is reclaimed in the background by {@code LinkReaper}.
+     */
     public boolean deleteById(Long id) {
-        log.info("Delete id={}", id);
-        if (!repository.existsById(id)) {
-            log.info("Not found id={}", id);
+        log.debug("Delete id={}", id);
+        int shard = shards.shardOf(id);
+        Optional<String> shortCode = shard == Shards.NONE
+                ? Optional.empty()
+                : shards.on(shard, () -> jdbcRepository.softDelete(id));
+        if (shortCode.isEmpty()) {
+            log.debug("Not found id={}", id);
             return false;
         }
-        repository.deleteById(id);
-        log.info("Deleted id={}", id);
+        redirectCache.evict(shortCode.get());
+        redirectSnapshot.evict(shortCode.get());
+        log.debug("Deleted id={}", id);
         return true;
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * This node's in-memory estimate of the top links of the window, empty when it cannot answer for the whole
+     * window; see {@link TrendingTracker#top}.
+     */
+    public Optional<List<TopUrlResponse>> estimateTopByWindow(String window, int limit) {
+        if (Strings.isBlank(window)) {
+            return Optional.empty();
+        }
+        Optional<List<TopUrlResponse>> trending = trendingTracker.top(TimeWindows.parse(window), limit);
+        trending.ifPresent(items -> log.debug("Estimate top by window: window={}, items={}", window, items.size()));
+        return trending;
+    }
+
+    /**
+     * Top links of all time, or of the window, queried on all shards in parallel in read-only transactions.
+     */
     public List<TopUrlResponse> getTopByWindow(String window, int limit) {
-        log.info("Get top by window: window={}, limit={}", window, limit);
-        List<TopItemView> views = Strings.isBlank(window)
-                ? repository.findTopByClickCount(limit)
-                : repository.findTopByWindow(Instant.now().minus(parseWindow(window)).atOffset(ZoneOffset.UTC), limit);
-        log.info("Get top by window: items={}", views.size());
+        log.debug("Get top by window: window={}, limit={}", window, limit);
+        if (Strings.isBlank(window)) {
+            return topUrlMapper.toDtoList(TopItems.merge(shardReads.gather(shard -> repository.findTopByClickCount(limit)), limit));
+        }
+        Duration duration = TimeWindows.parse(window);
+        Instant now = Instant.now();
+        RollupRange range = RollupRange.of(now.minus(duration), now, rollupProperties.minuteRetention());
+        List<TopItemView> views = TopItems.merge(shardReads.gather(shard -> repository.findTopByWindowFromRollups(
+                utc(range.from()), utc(range.minuteFrom()), utc(range.hourFrom()), utc(range.hourTo()),
+                utc(range.minuteTo()), limit)), limit);
+        log.debug("Get top by window: items={}", views.size());
         return topUrlMapper.toDtoList(views);
     }
 
-    private Duration parseWindow(String window) {
-        String v = window.trim().toLowerCase();
-        try {
-            long value = Long.parseLong(v.substring(0, v.length() - 1).trim());
-            if (v.endsWith("d")) return Duration.ofDays(value);
-            if (v.endsWith("h")) return Duration.ofHours(value);
-            if (v.endsWith("m")) return Duration.ofMinutes(value);
-            if (v.endsWith("s")) return Duration.ofSeconds(value);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid window: " + window + ". Use formats like 7d, 24h, 30m, 10s");
-        }
-        throw new IllegalArgumentException("Invalid window: " + window + ". Use formats like 7d, 24h, 30m, 10s");
+    private static OffsetDateTime utc(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
     }
 }
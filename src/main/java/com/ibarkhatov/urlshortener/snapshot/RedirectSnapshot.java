@@ -0,0 +1,147 @@
+package com.ibarkhatov.urlshortener.snapshot;
+
+import com.ibarkhatov.urlshortener.cache.CachedRedirect;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Read-only, memory-mapped shortCode to redirect index written by {@link RedirectSnapshotWriter}. Entries live
+ * in the page cache rather than on the heap, and opening a snapshot only maps the file.
+ * <p>
+ * Layout: a 64 byte header, records {@code id, code length, code, url length, url}, then the open-addressing
+ * table of 16 byte slots {@code hash, record offset} with linear probing; a zero hash marks a free slot.
+ * The file is mapped in chunks of {@code 1 << chunkShift} bytes, and neither a record nor a slot crosses a chunk.
+ */
+public final class RedirectSnapshot {
+    static final long MAGIC = 0x5553524544495231L;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int SLOT_SIZE = 16;
+
+    private final MappedByteBuffer[] chunks;
+    private final int chunkShift;
+    private final long chunkMask;
+    private final Instant createdAt;
+    private final long entries;
+    private final long slotsOffset;
+    private final long slotCount;
+    private final long sizeInBytes;
+
+    private RedirectSnapshot(MappedByteBuffer[] chunks, int chunkShift, long sizeInBytes) {
+        this.chunks = chunks;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1;
+        this.sizeInBytes = sizeInBytes;
+        this.createdAt = Instant.ofEpochMilli(getLong(16));
+        this.entries = getLong(24);
+        this.slotsOffset = getLong(32);
+        this.slotCount = getLong(40);
+    }
+
+    public static RedirectSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a redirect snapshot: " + path);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            int chunkShift = header.getInt(12);
+            if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION || header.getLong(48) != size
+                    || chunkShift < 6 || chunkShift > 30) {
+                throw new IOException("Not a redirect snapshot or incomplete: " + path);
+            }
+            long chunkSize = 1L << chunkShift;
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + chunkSize - 1) >>> chunkShift)];
+            for (int i = 0; i < chunks.length; i++) {
+                long position = (long) i << chunkShift;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkSize, size - position));
+            }
+            return new RedirectSnapshot(chunks, chunkShift, size);
+        }
+    }
+
+    /**
+     * The redirect of {@code shortCode}, or null if the link did not exist when the snapshot was taken.
+     */
+    public CachedRedirect get(String shortCode) {
+        long hash = hash(shortCode);
+        long slot = Long.remainderUnsigned(hash, slotCount);
+        for (long probe = 0; probe < slotCount; probe++) {
+            long position = slotsOffset + slot * SLOT_SIZE;
+            long slotHash = getLong(position);
+            if (slotHash == 0) {
+                return null;
+            }
+            if (slotHash == hash) {
+                long record = getLong(position + 8);
+                if (codeEquals(record, shortCode)) {
+                    return read(record, shortCode.length());
+                }
+            }
+            slot = slot + 1 == slotCount ? 0 : slot + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Start of the scan the snapshot was written from; links created later may be missing.
+     */
+    public Instant createdAt() {
+        return createdAt;
+    }
+
+    public long entries() {
+        return entries;
+    }
+
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Never zero, so zero can mark free slots.
+     */
+    static long hash(String shortCode) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < shortCode.length(); i++) {
+            h = (h ^ shortCode.charAt(i)) * 0x100000001B3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return h == 0 ? 1 : h;
+    }
+
+    private boolean codeEquals(long record, String shortCode) {
+        MappedByteBuffer chunk = chunks[(int) (record >>> chunkShift)];
+        int offset = (int) (record & chunkMask) + 8;
+        if (chunk.get(offset) != shortCode.length()) {
+            return false;
+        }
+        for (int i = 0; i < shortCode.length(); i++) {
+            if (chunk.get(offset + 1 + i) != (byte) shortCode.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CachedRedirect read(long record, int codeLength) {
+        MappedByteBuffer chunk = chunks[(int) (record >>> chunkShift)];
+        int offset = (int) (record & chunkMask);
+        int urlOffset = offset + 8 + 1 + codeLength;
+        byte[] url = new byte[chunk.getInt(urlOffset)];
+        chunk.get(urlOffset + 4, url);
+        return new CachedRedirect(chunk.getLong(offset), new String(url, StandardCharsets.UTF_8));
+    }
+
+    private long getLong(long position) {
+        return chunks[(int) (position >>> chunkShift)].getLong((int) (position & chunkMask));
+    }
+}
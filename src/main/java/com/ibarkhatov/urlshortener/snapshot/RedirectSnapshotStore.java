@@ -0,0 +1,196 @@
+package com.ibarkhatov.urlshortener.snapshot;
+
+import com.ibarkhatov.urlshortener.cache.CachedRedirect;
+import com.ibarkhatov.urlshortener.cache.RedirectCache;
+import com.ibarkhatov.urlshortener.config.RedirectSnapshotProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.repository.ShortUrlJdbcRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the node's {@link RedirectSnapshot}. On startup, before the web server accepts requests, a snapshot younger
+ * than {@code maxAge} is mapped and the links created since it was taken are loaded into the {@link RedirectCache},
+ * so a restarted node serves redirects without the database right away. The snapshot is rewritten every
+ * {@code interval} from a keyset scan of {@code short_url} per shard. Links deleted since a snapshot was taken are
+ * masked until the next one: on this node as they are deleted, on others once the next {@code deleteSyncInterval}
+ * lookup of {@code deleted_at} finds them. Links with an expiry or a click limit are left out, since the snapshot
+ * cannot enforce either.
+ */
+@Component
+@Slf4j
+public class RedirectSnapshotStore implements SchedulingConfigurer, SmartLifecycle {
+    /**
+     * Links committed after the snapshot's scan passed them but created before it started are still picked up by
+     * the delta; likewise for deletes committed after the previous lookup passed them.
+     */
+    private static final Duration DELTA_OVERLAP = Duration.ofMinutes(1);
+
+    private final ShortUrlJdbcRepository jdbcRepository;
+    private final RedirectCache redirectCache;
+    private final RedirectSnapshotProperties properties;
+    private final Shards shards;
+    private final Map<String, Instant> deleted = new ConcurrentHashMap<>();
+
+    private volatile RedirectSnapshot snapshot;
+    private volatile Instant deletesSyncedAt = Instant.now();
+    private volatile boolean running;
+
+    public RedirectSnapshotStore(ShortUrlJdbcRepository jdbcRepository, RedirectCache redirectCache,
+                                 RedirectSnapshotProperties properties, Shards shards, MeterRegistry meterRegistry) {
+        this.jdbcRepository = jdbcRepository;
+        this.redirectCache = redirectCache;
+        this.properties = properties;
+        this.shards = shards;
+        Gauge.builder("urlshortener.snapshot.entries", this, self -> self.snapshot == null ? Double.NaN : self.snapshot.entries())
+                .register(meterRegistry);
+        Gauge.builder("urlshortener.snapshot.size", this, self -> self.snapshot == null ? Double.NaN : self.snapshot.sizeInBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        if (properties.enabled()) {
+            load();
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 4096;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        if (!properties.enabled()) {
+            return;
+        }
+        RedirectSnapshot current = snapshot;
+        Duration initialDelay = current == null
+                ? Duration.ZERO
+                : properties.interval().minus(Duration.between(current.createdAt(), Instant.now()));
+        registrar.addFixedDelayTask(new FixedDelayTask(this::write, properties.interval(),
+                initialDelay.isNegative() ? Duration.ZERO : initialDelay));
+        registrar.addFixedDelayTask(new FixedDelayTask(this::syncDeletes, properties.deleteSyncInterval(),
+                properties.deleteSyncInterval()));
+    }
+
+    public CachedRedirect get(String shortCode) {
+        RedirectSnapshot current = snapshot;
+        if (current == null || (!deleted.isEmpty() && deleted.containsKey(shortCode))) {
+            return null;
+        }
+        return current.get(shortCode);
+    }
+
+    public void evict(String shortCode) {
+        if (properties.enabled()) {
+            deleted.put(shortCode, Instant.now());
+        }
+    }
+
+    void write() {
+        Instant start = Instant.now();
+        try {
+            // Only sizes the table, which grows when the estimate falls short
+            AtomicLong expected = new AtomicLong();
+            shards.forEach(shard -> expected.addAndGet(jdbcRepository.estimateCount()));
+            RedirectSnapshot written;
+            try (RedirectSnapshotWriter writer = new RedirectSnapshotWriter(properties.path(), expected.get(), start)) {
+                shards.forEach(shard -> jdbcRepository.forEachLive(properties.pageSize(), entity -> {
+                    if (entity.getExpiresAt() == null && entity.getMaxClicks() == null) {
+                        writer.add(entity.getId(), entity.getShortCode(), entity.getOriginalUrl());
+                    }
+                }));
+                written = writer.commit();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            snapshot = written;
+            deleted.values().removeIf(deletedAt -> deletedAt.isBefore(start));
+            log.info("Redirect snapshot written: entries={}, bytes={}, took={}",
+                    written.entries(), written.sizeInBytes(), Duration.between(start, Instant.now()));
+        } catch (RuntimeException e) {
+            log.warn("Redirect snapshot write failed", e);
+        }
+    }
+
+    /**
+     * Masks the links deleted on any node since the last lookup. They are stamped with the time they were found
+     * rather than their {@code deleted_at}, so only a snapshot whose scan started afterwards lifts the mask.
+     */
+    void syncDeletes() {
+        try {
+            maskDeletes();
+        } catch (RuntimeException e) {
+            log.warn("Redirect snapshot delete sync failed", e);
+        }
+    }
+
+    private void maskDeletes() {
+        Instant now = Instant.now();
+        int[] found = new int[1];
+        shards.forEach(shard -> jdbcRepository.forEachShortCodeDeletedSince(deletesSyncedAt.minus(DELTA_OVERLAP), shortCode -> {
+            deleted.put(shortCode, now);
+            found[0]++;
+        }));
+        deletesSyncedAt = now;
+        log.debug("Redirect snapshot deletes synced: found={}", found[0]);
+    }
+
+    private void load() {
+        if (!Files.exists(properties.path())) {
+            log.info("No redirect snapshot at {}", properties.path());
+            return;
+        }
+        try {
+            RedirectSnapshot loaded = RedirectSnapshot.open(properties.path());
+            Duration age = Duration.between(loaded.createdAt(), Instant.now());
+            if (age.compareTo(properties.maxAge()) > 0) {
+                log.info("Redirect snapshot ignored: age={}", age);
+                return;
+            }
+            int[] delta = new int[1];
+            shards.forEach(shard -> jdbcRepository.forEachCreatedSince(loaded.createdAt().minus(DELTA_OVERLAP), entity -> {
+                if (entity.getMaxClicks() == null) {
+                    redirectCache.put(entity.getShortCode(),
+                            new CachedRedirect(entity.getId(), entity.getOriginalUrl(), entity.getExpiresAt()));
+                    delta[0]++;
+                }
+            }));
+            deletesSyncedAt = loaded.createdAt();
+            maskDeletes();
+            snapshot = loaded;
+            log.info("Redirect snapshot loaded: entries={}, age={}, delta={}", loaded.entries(), age, delta[0]);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Redirect snapshot load failed, starting without it", e);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.ibarkhatov.urlshortener.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Writes a {@link RedirectSnapshot}. Records are appended to a temporary file while the slot table is filled in
+ * a second, memory-mapped temporary file; {@link #commit()} appends the table, writes the header last and
+ * atomically moves the file into place, so readers never see a partial snapshot. The table is sized for the
+ * expected number of entries and doubled when more are added.
+ */
+public final class RedirectSnapshotWriter implements Closeable {
+    static final int DEFAULT_CHUNK_SHIFT = 30;
+
+    private final Path target;
+    private final Path dataFile;
+    private final FileChannel data;
+    private final int chunkShift;
+    private final long chunkSize;
+    private final Instant createdAt;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private long bufferPosition = RedirectSnapshot.HEADER_SIZE;
+    private Path slotsFile;
+    private MappedByteBuffer[] slots;
+    private long slotCount;
+    private long entries;
+    private boolean committed;
+
+    /**
+     * @param expected  number of entries expected; the table is sized for a load factor of one half
+     * @param createdAt start of the scan the entries come from
+     */
+    public RedirectSnapshotWriter(Path target, long expected, Instant createdAt) throws IOException {
+        this(target, expected, createdAt, DEFAULT_CHUNK_SHIFT);
+    }
+
+    RedirectSnapshotWriter(Path target, long expected, Instant createdAt, int chunkShift) throws IOException {
+        this.target = target;
+        this.createdAt = createdAt;
+        this.chunkShift = chunkShift;
+        this.chunkSize = 1L << chunkShift;
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        this.dataFile = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        this.data = FileChannel.open(dataFile, StandardOpenOption.WRITE);
+        mapSlots(Math.max(16, expected * 2));
+    }
+
+    /**
+     * Adds a link; short codes are ASCII and unique.
+     */
+    public void add(long id, String shortCode, String originalUrl) {
+        if (entries >= slotCount / 2) {
+            growSlots();
+        }
+        byte[] url = originalUrl.getBytes(StandardCharsets.UTF_8);
+        int size = 8 + 1 + shortCode.length() + 4 + url.length;
+        if (size > buffer.capacity() || size > chunkSize) {
+            throw new IllegalArgumentException("Redirect too long for the snapshot: " + shortCode);
+        }
+        long position = bufferPosition + buffer.position();
+        if (position >>> chunkShift != (position + size - 1) >>> chunkShift) {
+            flush();
+            bufferPosition = (position + chunkSize - 1) & -chunkSize;
+            position = bufferPosition;
+        } else if (buffer.remaining() < size) {
+            flush();
+        }
+        buffer.putLong(id).put((byte) shortCode.length());
+        for (int i = 0; i < shortCode.length(); i++) {
+            buffer.put((byte) shortCode.charAt(i));
+        }
+        buffer.putInt(url.length).put(url);
+        insertSlot(RedirectSnapshot.hash(shortCode), position);
+        entries++;
+    }
+
+    public RedirectSnapshot commit() throws IOException {
+        flush();
+        long slotsOffset = (bufferPosition + RedirectSnapshot.SLOT_SIZE - 1) & -RedirectSnapshot.SLOT_SIZE;
+        long slotsSize = slotCount * RedirectSnapshot.SLOT_SIZE;
+        for (MappedByteBuffer chunk : slots) {
+            chunk.force();
+        }
+        try (FileChannel channel = FileChannel.open(slotsFile, StandardOpenOption.READ)) {
+            long transferred = 0;
+            while (transferred < slotsSize) {
+                transferred += channel.transferTo(transferred, slotsSize - transferred, data.position(slotsOffset + transferred));
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(RedirectSnapshot.HEADER_SIZE)
+                .putLong(RedirectSnapshot.MAGIC)
+                .putInt(RedirectSnapshot.VERSION)
+                .putInt(chunkShift)
+                .putLong(createdAt.toEpochMilli())
+                .putLong(entries)
+                .putLong(slotsOffset)
+                .putLong(slotCount)
+                .putLong(slotsOffset + slotsSize)
+                .flip();
+        data.write(header, 0);
+        data.force(true);
+        data.close();
+        Files.move(dataFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        committed = true;
+        return RedirectSnapshot.open(target);
+    }
+
+    @Override
+    public void close() throws IOException {
+        data.close();
+        Files.deleteIfExists(slotsFile);
+        if (!committed) {
+            Files.deleteIfExists(dataFile);
+        }
+    }
+
+    /**
+     * Replaces the slot table with an empty one of {@code count} slots in a new temporary file.
+     */
+    private void mapSlots(long count) {
+        try {
+            Path directory = target.toAbsolutePath().getParent();
+            slotsFile = Files.createTempFile(directory, target.getFileName().toString(), ".slots.tmp");
+            long slotsSize = count * RedirectSnapshot.SLOT_SIZE;
+            try (FileChannel channel = FileChannel.open(slotsFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                slots = new MappedByteBuffer[(int) ((slotsSize + chunkSize - 1) >>> chunkShift)];
+                for (int i = 0; i < slots.length; i++) {
+                    long position = (long) i << chunkShift;
+                    slots[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(chunkSize, slotsSize - position));
+                }
+            }
+            slotCount = count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Doubles the slot table and reinserts the occupied slots, for links created after they were counted.
+     */
+    private void growSlots() {
+        MappedByteBuffer[] oldSlots = slots;
+        Path oldFile = slotsFile;
+        long oldCount = slotCount;
+        mapSlots(oldCount * 2);
+        for (long slot = 0; slot < oldCount; slot++) {
+            long position = slot * RedirectSnapshot.SLOT_SIZE;
+            MappedByteBuffer chunk = oldSlots[(int) (position >>> chunkShift)];
+            int offset = (int) (position & (chunkSize - 1));
+            long hash = chunk.getLong(offset);
+            if (hash != 0) {
+                insertSlot(hash, chunk.getLong(offset + 8));
+            }
+        }
+        try {
+            Files.deleteIfExists(oldFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void insertSlot(long hash, long recordPosition) {
+        long slot = Long.remainderUnsigned(hash, slotCount);
+        while (true) {
+            long position = slot * RedirectSnapshot.SLOT_SIZE;
+            MappedByteBuffer chunk = slots[(int) (position >>> chunkShift)];
+            int offset = (int) (position & (chunkSize - 1));
+            if (chunk.getLong(offset) == 0) {
+                chunk.putLong(offset, hash);
+                chunk.putLong(offset + 8, recordPosition);
+                return;
+            }
+            slot = slot + 1 == slotCount ? 0 : slot + 1;
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                bufferPosition += data.write(buffer, bufferPosition);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
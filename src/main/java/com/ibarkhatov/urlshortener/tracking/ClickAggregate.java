@@ -0,0 +1,10 @@
+package com.ibarkhatov.urlshortener.tracking;
+
+import java.time.Instant;
+
+public record ClickAggregate(
+        Long shortUrlId,
+        long clicks,
+        Instant lastAccessedAt
+) {
+}
@@ -0,0 +1,59 @@
+package com.ibarkhatov.urlshortener.tracking;
+
+import com.ibarkhatov.urlshortener.repository.ClickJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+public class ClickBatchWriter {
+    private final ClickJdbcRepository repository;
+
+    /**
+     * Coalesces the batch per link so every link is updated once, records one access row per click and adds
+     * the clicks to the per-minute and per-hour rollups.
+     */
+    @Transactional
+    public void write(List<ClickEvent> events) {
+        Map<Long, ClickAggregate> aggregates = new LinkedHashMap<>();
+        for (ClickEvent event : events) {
+            aggregates.merge(event.shortUrlId(),
+                    new ClickAggregate(event.shortUrlId(), 1, event.accessedAt()),
+                    (a, b) -> new ClickAggregate(a.shortUrlId(), a.clicks() + b.clicks(),
+                            a.lastAccessedAt().isAfter(b.lastAccessedAt()) ? a.lastAccessedAt() : b.lastAccessedAt()));
+        }
+        // A stable id order keeps concurrent flushers from deadlocking on the same rows
+        List<ClickAggregate> ordered = new ArrayList<>(aggregates.values());
+        ordered.sort((a, b) -> Long.compare(a.shortUrlId(), b.shortUrlId()));
+        repository.applyClicks(ordered);
+        repository.insertAccesses(events);
+        repository.applyRollups(toMinuteBuckets(events));
+    }
+
+    private static List<ClickBucket> toMinuteBuckets(List<ClickEvent> events) {
+        Map<BucketKey, ClickBucket> buckets = new LinkedHashMap<>();
+        for (ClickEvent event : events) {
+            Instant minute = event.accessedAt().truncatedTo(ChronoUnit.MINUTES);
+            buckets.merge(new BucketKey(event.shortUrlId(), minute),
+                    new ClickBucket(event.shortUrlId(), minute, 1, event.accessedAt()),
+                    (a, b) -> new ClickBucket(a.shortUrlId(), a.bucketStart(), a.clicks() + b.clicks(),
+                            a.lastAccessedAt().isAfter(b.lastAccessedAt()) ? a.lastAccessedAt() : b.lastAccessedAt()));
+        }
+        List<ClickBucket> ordered = new ArrayList<>(buckets.values());
+        ordered.sort((a, b) -> a.bucketStart().equals(b.bucketStart())
+                ? Long.compare(a.shortUrlId(), b.shortUrlId())
+                : a.bucketStart().compareTo(b.bucketStart()));
+        return ordered;
+    }
+
+    private record BucketKey(Long shortUrlId, Instant minute) {
+    }
+}
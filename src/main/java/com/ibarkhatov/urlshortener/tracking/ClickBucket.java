@@ -0,0 +1,11 @@
+package com.ibarkhatov.urlshortener.tracking;
+
+import java.time.Instant;
+
+public record ClickBucket(
+        Long shortUrlId,
+        Instant bucketStart,
+        long clicks,
+        Instant lastAccessedAt
+) {
+}
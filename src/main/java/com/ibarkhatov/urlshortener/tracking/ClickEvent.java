@@ -0,0 +1,9 @@
+package com.ibarkhatov.urlshortener.tracking;
+
+import java.time.Instant;
+
+public record ClickEvent(
+        Long shortUrlId,
+        Instant accessedAt
+) {
+}
@@ -0,0 +1,198 @@
+package com.ibarkhatov.urlshortener.tracking;
+
+import com.ibarkhatov.urlshortener.config.ClickTrackingProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers redirect clicks in a bounded queue and writes them in batches from a single background thread.
+ * When the queue is full the redirect thread writes its own click, so clicks slow down redirects instead of
+ * being dropped. Stops after the web server so the remaining buffer is flushed on a graceful shutdown. A batch
+ * spanning several shards is written in one transaction per shard.
+ * <p>
+ * Clicks of a failed background flush are kept, up to {@code maxRetained}, and written with the next batch;
+ * the flusher then waits up to {@code flushInterval} for more clicks, which paces the retries. Clicks beyond
+ * the bound, of a failed synchronous write or still failing at shutdown are lost.
+ */
+@Component
+@Slf4j
+public class ClickTracker implements SmartLifecycle {
+    private final ClickTrackingProperties properties;
+    private final ClickBatchWriter writer;
+    private final Shards shards;
+    private final BlockingQueue<ClickEvent> queue;
+    /**
+     * Clicks of failed flushes; only touched by the flusher thread.
+     */
+    private final Deque<ClickEvent> retained = new ArrayDeque<>();
+    private final Counter flushedClicks;
+    private final Counter failedClicks;
+    private final Counter lostClicks;
+    private final Counter synchronousClicks;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public ClickTracker(ClickTrackingProperties properties, ClickBatchWriter writer, Shards shards,
+                        MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.writer = writer;
+        this.shards = shards;
+        this.queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+        this.flushedClicks = meterRegistry.counter("urlshortener.clicks.flushed");
+        this.failedClicks = meterRegistry.counter("urlshortener.clicks.failed");
+        this.lostClicks = meterRegistry.counter("urlshortener.clicks.lost");
+        this.synchronousClicks = meterRegistry.counter("urlshortener.clicks.synchronous");
+        Gauge.builder("urlshortener.clicks.buffered", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    public void record(Long shortUrlId) {
+        ClickEvent event = new ClickEvent(shortUrlId, Instant.now());
+        try {
+            if (queue.offer(event, properties.offerTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronousClicks.increment();
+        lostClicks.increment(flush(List.of(event)).size());
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = new Thread(this::runFlusher, "click-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 4096;
+    }
+
+    private void runFlusher() {
+        List<ClickEvent> batch = new ArrayList<>(properties.batchSize());
+        while (running) {
+            while (batch.size() < properties.batchSize() && !retained.isEmpty()) {
+                batch.add(retained.poll());
+            }
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                retain(flush(batch));
+                batch.clear();
+            }
+        }
+        batch.addAll(retained);
+        retained.clear();
+        queue.drainTo(batch);
+        for (int from = 0; from < batch.size(); from += properties.batchSize()) {
+            lostClicks.increment(flush(batch.subList(from, Math.min(from + properties.batchSize(), batch.size()))).size());
+        }
+        log.info("Click flusher stopped");
+    }
+
+    /**
+     * Keeps the clicks of a failed flush for the next batch while there is room.
+     */
+    private void retain(List<ClickEvent> failed) {
+        int kept = Math.max(0, Math.min(failed.size(), properties.maxRetained() - retained.size()));
+        retained.addAll(failed.subList(0, kept));
+        lostClicks.increment(failed.size() - kept);
+    }
+
+    private void collect(List<ClickEvent> batch) throws InterruptedException {
+        if (batch.isEmpty()) {
+            ClickEvent first = queue.poll(properties.flushInterval().toMillis(), TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return;
+            }
+            batch.add(first);
+        }
+        long deadline = System.nanoTime() + properties.flushInterval().toNanos();
+        while (batch.size() < properties.batchSize()) {
+            queue.drainTo(batch, properties.batchSize() - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= properties.batchSize() || remaining <= 0) {
+                return;
+            }
+            ClickEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * @return the clicks of the shards whose write failed
+     */
+    private List<ClickEvent> flush(List<ClickEvent> batch) {
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        if (shards.count() == 1) {
+            return flush(0, batch) ? List.of() : batch;
+        }
+        Map<Integer, List<ClickEvent>> byShard = new HashMap<>();
+        for (ClickEvent event : batch) {
+            byShard.computeIfAbsent(shards.shardOf(event.shortUrlId()), shard -> new ArrayList<>()).add(event);
+        }
+        List<ClickEvent> failed = new ArrayList<>();
+        byShard.forEach((shard, events) -> {
+            if (!flush(shard, events)) {
+                failed.addAll(events);
+            }
+        });
+        return failed;
+    }
+
+    private boolean flush(int shard, List<ClickEvent> events) {
+        try {
+            shards.run(shard, () -> writer.write(events));
+            flushedClicks.increment(events.size());
+            log.debug("Flushed clicks: shard={}, clicks={}", shard, events.size());
+            return true;
+        } catch (RuntimeException e) {
+            failedClicks.increment(events.size());
+            log.error("Failed to flush {} clicks to shard {}", events.size(), shard, e);
+            return false;
+        }
+    }
+}
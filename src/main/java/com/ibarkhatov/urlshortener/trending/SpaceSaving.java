@@ -0,0 +1,123 @@
+package com.ibarkhatov.urlshortener.trending;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Space-Saving heavy-hitters summary (Metwally et al.) over at most {@code capacity} counters kept in an
+ * indexed min-heap, so every update is O(log capacity).
+ * <p>
+ * After {@code N} offers every link whose true count exceeds {@code N / capacity} is present, and every
+ * reported count overestimates the true count by at most {@code error <= N / capacity}.
+ * Not thread-safe, callers synchronize.
+ */
+class SpaceSaving {
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    private final Counter[] heap;
+    private int size;
+    private long total;
+
+    SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+        this.heap = new Counter[capacity];
+    }
+
+    void offer(String shortCode, String originalUrl, long timestamp) {
+        total++;
+        Counter counter = counters.get(shortCode);
+        if (counter != null) {
+            counter.count++;
+            counter.lastSeen = Math.max(counter.lastSeen, timestamp);
+            siftDown(counter.heapIndex);
+            return;
+        }
+        if (size < capacity) {
+            counter = new Counter();
+            counter.shortCode = shortCode;
+            counter.originalUrl = originalUrl;
+            counter.count = 1;
+            counter.lastSeen = timestamp;
+            counters.put(shortCode, counter);
+            place(counter, size++);
+            siftUp(counter.heapIndex);
+            return;
+        }
+        // Replace the minimum: the newcomer inherits its count as the overestimation error
+        counter = heap[0];
+        counters.remove(counter.shortCode);
+        counter.shortCode = shortCode;
+        counter.originalUrl = originalUrl;
+        counter.error = counter.count;
+        counter.count++;
+        counter.lastSeen = timestamp;
+        counters.put(shortCode, counter);
+        siftDown(0);
+    }
+
+    void clear() {
+        counters.clear();
+        for (int i = 0; i < size; i++) {
+            heap[i] = null;
+        }
+        size = 0;
+        total = 0;
+    }
+
+    long total() {
+        return total;
+    }
+
+    void forEach(Consumer<Counter> consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(heap[i]);
+        }
+    }
+
+    private void siftUp(int index) {
+        Counter counter = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= counter.count) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(counter, index);
+    }
+
+    private void siftDown(int index) {
+        Counter counter = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && heap[right].count < heap[child].count) {
+                child = right;
+            }
+            if (counter.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(counter, index);
+    }
+
+    private void place(Counter counter, int index) {
+        heap[index] = counter;
+        counter.heapIndex = index;
+    }
+
+    static final class Counter {
+        String shortCode;
+        String originalUrl;
+        long count;
+        long error;
+        long lastSeen;
+        int heapIndex;
+    }
+}
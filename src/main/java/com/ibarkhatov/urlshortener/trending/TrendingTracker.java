@@ -0,0 +1,209 @@
+package com.ibarkhatov.urlshortener.trending;
+
+import com.ibarkhatov.urlshortener.concurrent.RingBuffer;
+import com.ibarkhatov.urlshortener.config.TrendingProperties;
+import com.ibarkhatov.urlshortener.dto.TopUrlResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sliding-window heavy hitters of this node's redirects, so with several nodes behind a load balancer an estimate
+ * only reflects this node's share of the traffic. Three rings of {@link SpaceSaving} summaries, one
+ * per second for the last minute, one per minute for the last hour and one per hour for the last day,
+ * answer top-N queries for windows up to 24h by merging the slots the window spans.
+ * <p>
+ * Redirects only publish their click into a lock-free {@link RingBuffer}; a single background thread folds the
+ * clicks into the summaries, so the slot locks are contended by top-N queries alone. Clicks arriving while the
+ * buffer is full are dropped and counted.
+ * <p>
+ * Error bounds: with {@code N} clicks in the merged slots and {@code capacity} counters per slot, every
+ * reported count is within {@code N / capacity} of the true count and every link with more than
+ * {@code N / capacity} clicks is reported. A window spans as many slots as it takes whole slots, the partial
+ * current slot included, so it covers up to one slot less than requested: {@code 24h} is the last 23 hours and
+ * the current hour so far. Memory is bounded by {@code 144 * capacity} counters.
+ */
+@Component
+@Slf4j
+public class TrendingTracker implements SmartLifecycle {
+    private static final int DRAIN_BATCH = 1024;
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final boolean enabled;
+    private final Clock clock;
+    private final long trackingSince;
+    private final List<Ring> rings;
+    private final RingBuffer<Click> buffer;
+    private final Counter droppedClicks;
+
+    private volatile boolean running;
+    private Thread folder;
+
+    @Autowired
+    public TrendingTracker(TrendingProperties properties, MeterRegistry meterRegistry) {
+        this(properties, Clock.systemUTC(), meterRegistry);
+    }
+
+    TrendingTracker(TrendingProperties properties, Clock clock, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.clock = clock;
+        this.trackingSince = clock.millis();
+        this.rings = List.of(
+                new Ring(Duration.ofSeconds(1), 60, properties.capacity()),
+                new Ring(Duration.ofMinutes(1), 60, properties.capacity()),
+                new Ring(Duration.ofHours(1), 24, properties.capacity())
+        );
+        this.buffer = new RingBuffer<>(properties.bufferSize());
+        this.droppedClicks = meterRegistry.counter("urlshortener.trending.dropped");
+        Gauge.builder("urlshortener.trending.buffered", buffer, RingBuffer::size).register(meterRegistry);
+    }
+
+    public void record(String shortCode, String originalUrl) {
+        if (enabled && !buffer.offer(new Click(shortCode, originalUrl, clock.millis()))) {
+            droppedClicks.increment();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (enabled) {
+            folder = new Thread(this::runFolder, "trending-folder");
+            folder.setDaemon(true);
+            folder.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (folder != null) {
+            LockSupport.unpark(folder);
+            try {
+                folder.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runFolder() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_NANOS);
+            }
+        }
+        log.info("Trending folder stopped");
+    }
+
+    /**
+     * Folds buffered clicks into the summaries. Must only be called from one thread at a time.
+     *
+     * @return number of clicks folded
+     */
+    int drain() {
+        return buffer.drain(click -> {
+            for (Ring ring : rings) {
+                ring.offer(click.shortCode(), click.originalUrl(), click.timestamp());
+            }
+        }, DRAIN_BATCH);
+    }
+
+    /**
+     * Returns the estimated top links of the window, or empty when tracking is disabled, the window is longer
+     * than the tracked horizon or this node has not been tracking for the whole window yet.
+     */
+    public Optional<List<TopUrlResponse>> top(Duration window, int limit) {
+        long now = clock.millis();
+        if (!enabled || window.toMillis() > now - trackingSince) {
+            return Optional.empty();
+        }
+        return rings.stream()
+                .filter(ring -> ring.covers(window))
+                .findFirst()
+                .map(ring -> ring.top(window, limit, now));
+    }
+
+    private static final class Ring {
+        private final long slotMillis;
+        private final Slot[] slots;
+
+        Ring(Duration slotDuration, int slotCount, int capacity) {
+            this.slotMillis = slotDuration.toMillis();
+            this.slots = new Slot[slotCount];
+            for (int i = 0; i < slotCount; i++) {
+                slots[i] = new Slot(capacity);
+            }
+        }
+
+        boolean covers(Duration window) {
+            return window.toMillis() <= slotMillis * slots.length;
+        }
+
+        void offer(String shortCode, String originalUrl, long now) {
+            long epoch = now / slotMillis;
+            Slot slot = slots[(int) (epoch % slots.length)];
+            synchronized (slot) {
+                if (slot.epoch != epoch) {
+                    slot.summary.clear();
+                    slot.epoch = epoch;
+                }
+                slot.summary.offer(shortCode, originalUrl, now);
+            }
+        }
+
+        List<TopUrlResponse> top(Duration window, int limit, long now) {
+            long current = now / slotMillis;
+            long span = Math.max(1, (window.toMillis() + slotMillis - 1) / slotMillis);
+            Map<String, TopUrlResponse> merged = new HashMap<>();
+            for (long epoch = current - span + 1; epoch <= current; epoch++) {
+                Slot slot = slots[(int) (epoch % slots.length)];
+                synchronized (slot) {
+                    if (slot.epoch != epoch) {
+                        continue;
+                    }
+                    slot.summary.forEach(c -> merged.merge(c.shortCode,
+                            new TopUrlResponse(c.shortCode, c.originalUrl, c.count, Instant.ofEpochMilli(c.lastSeen), null),
+                            (a, b) -> new TopUrlResponse(a.shortCode(), a.originalUrl(), a.clickCount() + b.clickCount(),
+                                    a.lastAccessedAt().isAfter(b.lastAccessedAt()) ? a.lastAccessedAt() : b.lastAccessedAt(), null)));
+                }
+            }
+            List<TopUrlResponse> result = new ArrayList<>(merged.values());
+            result.sort(Comparator.comparingLong(TopUrlResponse::clickCount).reversed());
+            return result.size() > limit ? List.copyOf(result.subList(0, limit)) : result;
+        }
+    }
+
+    private record Click(String shortCode, String originalUrl, long timestamp) {
+    }
+
+    private static final class Slot {
+        private final SpaceSaving summary;
+        private long epoch = -1;
+
+        Slot(int capacity) {
+            this.summary = new SpaceSaving(capacity);
+        }
+    }
+}
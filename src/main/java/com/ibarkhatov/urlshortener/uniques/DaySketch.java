@@ -0,0 +1,10 @@
+package com.ibarkhatov.urlshortener.uniques;
+
+import java.time.LocalDate;
+
+public record DaySketch(
+        long shortUrlId,
+        LocalDate day,
+        HyperLogLog sketch
+) {
+}
@@ -0,0 +1,223 @@
+package com.ibarkhatov.urlshortener.uniques;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog distinct counter (Flajolet et al.) over {@code 2^precision} one-byte registers fed with 64-bit
+ * hashes. The standard error is {@code 1.04 / sqrt(2^precision)}; small cardinalities are estimated by linear
+ * counting, and a 64-bit hash needs no large-range correction. Sketches of the same precision merge losslessly
+ * by taking the register-wise maximum. Not thread-safe, callers synchronize.
+ * <p>
+ * A new sketch keeps only its non-zero registers, sorted by index, and switches to the dense array once more
+ * than an eighth of them are set, so the many links with few visitors cost a few bytes instead of
+ * {@code 2^precision}.
+ */
+public class HyperLogLog {
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+    /**
+     * Bytes per non-zero register in the sparse encoding: a two-byte index and the register.
+     */
+    private static final int SPARSE_ENTRY = 3;
+
+    private final int precision;
+    private final int maxSparse;
+    /**
+     * Dense registers, null while sparse.
+     */
+    private byte[] registers;
+    /**
+     * Non-zero registers as {@code index << 8 | register}, sorted by index; null once dense.
+     */
+    private int[] sparse;
+    private int sparseSize;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("Invalid HyperLogLog precision: " + precision);
+        }
+        this.precision = precision;
+        this.maxSparse = (1 << precision) / 8;
+        this.sparse = new int[4];
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    public void add(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        // The sentinel bit caps the rank at 64 - precision + 1 when the remaining bits are all zero
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        update(index, rank);
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog of precision " + other.precision
+                    + " into " + precision);
+        }
+        if (other.registers == null) {
+            for (int i = 0; i < other.sparseSize; i++) {
+                update(other.sparse[i] >>> 8, other.sparse[i] & 0xFF);
+            }
+            return;
+        }
+        toDense();
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = 1 << precision;
+        double sum;
+        int zeros;
+        if (registers == null) {
+            zeros = m - sparseSize;
+            sum = zeros;
+            for (int i = 0; i < sparseSize; i++) {
+                sum += Math.scalb(1.0, -(sparse[i] & 0xFF));
+            }
+        } else {
+            sum = 0;
+            zeros = 0;
+            for (byte register : registers) {
+                sum += Math.scalb(1.0, -register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Precision, encoding and registers; sketches with few non-zero registers are stored as index/value pairs,
+     * so a link with a handful of visitors takes a few bytes instead of {@code 2^precision}.
+     */
+    public byte[] toBytes() {
+        int m = 1 << precision;
+        int nonZero = sparseSize;
+        if (registers != null) {
+            nonZero = 0;
+            for (byte register : registers) {
+                if (register != 0) {
+                    nonZero++;
+                }
+            }
+        }
+        if (nonZero * SPARSE_ENTRY >= m) {
+            ByteBuffer buffer = ByteBuffer.allocate(2 + m);
+            buffer.put((byte) precision).put(DENSE).put(registers);
+            return buffer.array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(2 + nonZero * SPARSE_ENTRY);
+        buffer.put((byte) precision).put(SPARSE);
+        if (registers == null) {
+            for (int i = 0; i < sparseSize; i++) {
+                buffer.putShort((short) (sparse[i] >>> 8)).put((byte) sparse[i]);
+            }
+        } else {
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] != 0) {
+                    buffer.putShort((short) i).put(registers[i]);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        byte encoding = buffer.get();
+        if (encoding == DENSE) {
+            sketch.toDense();
+            buffer.get(sketch.registers);
+        } else if (encoding == SPARSE) {
+            while (buffer.hasRemaining()) {
+                sketch.update(Short.toUnsignedInt(buffer.getShort()), buffer.get());
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown HyperLogLog encoding: " + encoding);
+        }
+        return sketch;
+    }
+
+    private void update(int index, int rank) {
+        if (registers != null) {
+            if (rank > registers[index]) {
+                registers[index] = (byte) rank;
+            }
+            return;
+        }
+        int position = find(index);
+        if (position >= 0) {
+            if (rank > (sparse[position] & 0xFF)) {
+                sparse[position] = index << 8 | rank;
+            }
+            return;
+        }
+        if (sparseSize == maxSparse) {
+            toDense();
+            registers[index] = (byte) rank;
+            return;
+        }
+        position = -position - 1;
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, Math.min(sparse.length * 2, maxSparse));
+        }
+        System.arraycopy(sparse, position, sparse, position + 1, sparseSize - position);
+        sparse[position] = index << 8 | rank;
+        sparseSize++;
+    }
+
+    /**
+     * @return position of the register, or {@code -(insertion point) - 1} if it is zero
+     */
+    private int find(int index) {
+        int low = 0;
+        int high = sparseSize - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int found = sparse[middle] >>> 8;
+            if (found < index) {
+                low = middle + 1;
+            } else if (found > index) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void toDense() {
+        if (registers != null) {
+            return;
+        }
+        registers = new byte[1 << precision];
+        for (int i = 0; i < sparseSize; i++) {
+            registers[sparse[i] >>> 8] = (byte) sparse[i];
+        }
+        sparse = null;
+        sparseSize = 0;
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+}
@@ -0,0 +1,188 @@
+package com.ibarkhatov.urlshortener.uniques;
+
+import com.ibarkhatov.urlshortener.config.UniqueVisitorProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.MurmurHash3;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects a HyperLogLog sketch of visitor hashes per link and UTC day in memory and merges them into the
+ * stored sketches every {@code flushInterval}, so a redirect costs a hash and a register update instead of a
+ * write. Sketches merge losslessly, so one that fails to flush is merged back and retried with the next flush;
+ * each shard's sketches are written and retried on their own. At most {@code maxPending} link days are held;
+ * beyond that, visits of new link days and sketches that failed to flush are dropped and counted.
+ * Only the hash of the visitor key is kept, never the address.
+ */
+@Component
+@Slf4j
+public class UniqueVisitorTracker implements SchedulingConfigurer, DisposableBean {
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final UniqueVisitorProperties properties;
+    private final UniqueVisitorWriter writer;
+    private final Shards shards;
+    private final Map<Key, Pending> pending = new ConcurrentHashMap<>();
+    private final Counter flushedSketches;
+    private final Counter failedSketches;
+    private final Counter droppedVisits;
+    private final Counter droppedSketches;
+
+    public UniqueVisitorTracker(UniqueVisitorProperties properties, UniqueVisitorWriter writer, Shards shards,
+                                MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.writer = writer;
+        this.shards = shards;
+        this.flushedSketches = meterRegistry.counter("urlshortener.uniques.flushed");
+        this.failedSketches = meterRegistry.counter("urlshortener.uniques.failed");
+        this.droppedVisits = meterRegistry.counter("urlshortener.uniques.dropped", "kind", "visit");
+        this.droppedSketches = meterRegistry.counter("urlshortener.uniques.dropped", "kind", "sketch");
+        Gauge.builder("urlshortener.uniques.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Hash of the visitor key, the client address and User-Agent.
+     */
+    public static long visitorHash(String address, String userAgent) {
+        String key = userAgent == null ? address : address + '\n' + userAgent;
+        return MurmurHash3.hash128x64(key.getBytes(StandardCharsets.UTF_8))[0];
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        if (properties.enabled()) {
+            registrar.addFixedDelayTask(this::flush, properties.flushInterval());
+        }
+    }
+
+    public void record(long shortUrlId, long visitorHash) {
+        if (!properties.enabled()) {
+            return;
+        }
+        Key key = new Key(shortUrlId, Math.floorDiv(System.currentTimeMillis(), MILLIS_PER_DAY));
+        while (true) {
+            Pending entry = pendingEntry(key);
+            if (entry == null) {
+                droppedVisits.increment();
+                return;
+            }
+            synchronized (entry) {
+                if (!entry.flushed) {
+                    entry.sketch.add(visitorHash);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the sketches of the link collected on this node and not flushed yet, from {@code fromDay} to
+     * {@code toDay}, into {@code target}.
+     */
+    public void mergePending(long shortUrlId, LocalDate fromDay, LocalDate toDay, HyperLogLog target) {
+        for (long day = fromDay.toEpochDay(); day <= toDay.toEpochDay(); day++) {
+            Pending entry = pending.get(new Key(shortUrlId, day));
+            if (entry != null) {
+                synchronized (entry) {
+                    target.merge(entry.sketch);
+                }
+            }
+        }
+    }
+
+    void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<DaySketch> batch = new ArrayList<>(pending.size());
+        for (Key key : pending.keySet()) {
+            Pending entry = pending.remove(key);
+            if (entry != null) {
+                synchronized (entry) {
+                    entry.flushed = true;
+                }
+                batch.add(new DaySketch(key.shortUrlId, LocalDate.ofEpochDay(key.epochDay), entry.sketch));
+            }
+        }
+        batch.sort(Comparator.comparingLong(DaySketch::shortUrlId).thenComparing(DaySketch::day));
+        Map<Integer, List<DaySketch>> byShard = new LinkedHashMap<>();
+        for (DaySketch sketch : batch) {
+            byShard.computeIfAbsent(shards.shardOf(sketch.shortUrlId()), shard -> new ArrayList<>()).add(sketch);
+        }
+        byShard.forEach((shard, sketches) -> {
+            try {
+                shards.run(shard, () -> writer.write(sketches));
+                flushedSketches.increment(sketches.size());
+                log.debug("Flushed visitor sketches: shard={}, sketches={}", shard, sketches.size());
+            } catch (RuntimeException e) {
+                failedSketches.increment(sketches.size());
+                log.error("Failed to flush {} visitor sketches to shard {}, keeping them for the next flush",
+                        sketches.size(), shard, e);
+                sketches.forEach(this::mergeBack);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    private void mergeBack(DaySketch sketch) {
+        Key key = new Key(sketch.shortUrlId(), sketch.day().toEpochDay());
+        while (true) {
+            Pending entry = pendingEntry(key);
+            if (entry == null) {
+                droppedSketches.increment();
+                return;
+            }
+            synchronized (entry) {
+                if (!entry.flushed) {
+                    entry.sketch.merge(sketch.sketch());
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The entry of the link day, created if there is room; null if {@code maxPending} link days are held.
+     */
+    private Pending pendingEntry(Key key) {
+        Pending entry = pending.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        if (pending.size() >= properties.maxPending()) {
+            return null;
+        }
+        return pending.computeIfAbsent(key, k -> new Pending(new HyperLogLog(properties.precision())));
+    }
+
+    private record Key(long shortUrlId, long epochDay) {
+    }
+
+    private static final class Pending {
+        private final HyperLogLog sketch;
+        private boolean flushed;
+
+        private Pending(HyperLogLog sketch) {
+            this.sketch = sketch;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ibarkhatov.urlshortener.uniques;
+
+import com.ibarkhatov.urlshortener.config.UniqueVisitorProperties;
+import com.ibarkhatov.urlshortener.repository.UniqueVisitorRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class UniqueVisitorWriter {
+    private final UniqueVisitorRepository repository;
+    private final UniqueVisitorProperties properties;
+
+    /**
+     * Merges the sketches in chunks of {@code batchSize}; they must be sorted by link and day.
+     */
+    @Transactional
+    public void write(List<DaySketch> sketches) {
+        for (int from = 0; from < sketches.size(); from += properties.batchSize()) {
+            repository.merge(sketches.subList(from, Math.min(from + properties.batchSize(), sketches.size())));
+        }
+    }
+}
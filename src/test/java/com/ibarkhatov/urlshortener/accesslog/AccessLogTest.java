@@ -0,0 +1,86 @@
+package com.ibarkhatov.urlshortener.accesslog;
+
+import com.ibarkhatov.urlshortener.admission.AdmissionEndpoint;
+import com.ibarkhatov.urlshortener.config.AccessLogProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessLogTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void record_writesOneJsonLinePerRequest() throws IOException {
+        AccessLog accessLog = new AccessLog(properties(16, Map.of()), meterRegistry);
+
+        accessLog.start();
+        accessLog.record(AdmissionEndpoint.REDIRECT, "GET", "/aZ3x", 302, 1_500_000, "203.0.113.7", "curl/8.5 \"x\"");
+        accessLog.record(AdmissionEndpoint.CREATE, "POST", "/urls", 201, 20_000, "203.0.113.8", null);
+        accessLog.stop();
+
+        assertThat(Files.readAllLines(dir.resolve("access.log")))
+                .hasSize(2)
+                .first().asString()
+                .startsWith("{\"time\":\"")
+                .endsWith("\"endpoint\":\"redirect\",\"method\":\"GET\",\"path\":\"/aZ3x\",\"status\":302,"
+                        + "\"durationMicros\":1500,\"client\":\"203.0.113.7\",\"userAgent\":\"curl/8.5 \\\"x\\\"\"}");
+        assertThat(meterRegistry.counter("urlshortener.accesslog.written").count()).isEqualTo(2);
+    }
+
+    @Test
+    void record_skipsSampledOutAndRateLimitedAndCountsDropsOfFullBuffer() {
+        AccessLog accessLog = new AccessLog(properties(4, Map.of(
+                AdmissionEndpoint.REDIRECT, new AccessLogProperties.Sampling(0, 0, 0),
+                AdmissionEndpoint.LIST, new AccessLogProperties.Sampling(1, 0.001, 2))), meterRegistry);
+
+        for (int i = 0; i < 10; i++) {
+            accessLog.record(AdmissionEndpoint.REDIRECT, "GET", "/aZ3x", 302, 0, "203.0.113.7", null);
+            accessLog.record(AdmissionEndpoint.LIST, "GET", "/urls", 200, 0, "203.0.113.7", null);
+            accessLog.record(AdmissionEndpoint.DELETE, "DELETE", "/urls/" + i, 204, 0, "203.0.113.7", null);
+        }
+
+        assertThat(skipped("redirect", "sampling")).isEqualTo(10);
+        assertThat(skipped("list", "rate")).isEqualTo(8);
+        assertThat(meterRegistry.counter("urlshortener.accesslog.dropped", "endpoint", "delete").count()).isEqualTo(8);
+        assertThat(meterRegistry.get("urlshortener.accesslog.buffered").gauge().value()).isEqualTo(4);
+    }
+
+    @Test
+    void writer_rotatesBySizeAndKeepsMaxHistoryFiles() throws IOException {
+        Path path = dir.resolve("access.log");
+        AccessLogRecord record = new AccessLogRecord(0, AdmissionEndpoint.REDIRECT, "GET", "/aZ3x", 302, 0, "::1", null);
+
+        try (AccessLogWriter writer = new AccessLogWriter(path, 1, 2)) {
+            for (int i = 0; i < 5; i++) {
+                writer.append(record);
+            }
+        }
+
+        try (var files = Files.list(dir)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactlyInAnyOrder("access.log", "access.log.1", "access.log.2");
+        }
+        assertThat(Files.readAllLines(path)).hasSize(1);
+    }
+
+    private double skipped(String endpoint, String reason) {
+        return meterRegistry.counter("urlshortener.accesslog.skipped", "endpoint", endpoint, "reason", reason).count();
+    }
+
+    private AccessLogProperties properties(int bufferSize, Map<AdmissionEndpoint, AccessLogProperties.Sampling> endpoints) {
+        return new AccessLogProperties(true, dir.resolve("access.log"), DataSize.ofMegabytes(1), 2, bufferSize,
+                Duration.ofMillis(10), endpoints);
+    }
+}
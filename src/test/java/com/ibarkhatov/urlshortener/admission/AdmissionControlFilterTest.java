@@ -0,0 +1,98 @@
+package com.ibarkhatov.urlshortener.admission;
+
+import com.ibarkhatov.urlshortener.config.AdmissionControlProperties;
+import com.ibarkhatov.urlshortener.config.AdmissionControlProperties.EndpointLimit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlFilterTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(new AdmissionControlProperties(true, 1000,
+            Duration.ofMinutes(1), 1, Duration.ZERO, Map.of(
+            AdmissionEndpoint.CREATE, new EndpointLimit(1, 2, true),
+            AdmissionEndpoint.REDIRECT, new EndpointLimit(1000, 1000, false))), meterRegistry);
+
+    @Test
+    void doFilter_rejectsClientOverItsBurst_withRetryAfter() throws Exception {
+        assertThat(create("10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(create("10.0.0.1").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = create("10.0.0.1");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(create("10.0.0.2").getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.counter("urlshortener.admission.rejections", "endpoint", "create", "reason", "rate").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_shedsDatabaseBoundRequest_whenAllSlotsAreTaken() throws Exception {
+        CountDownLatch inChain = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                filter.doFilter(request("POST", "/urls", "10.0.0.1"), new MockHttpServletResponse(), (req, res) -> {
+                    inChain.countDown();
+                    awaitQuietly(release);
+                });
+                return null;
+            });
+            assertThat(inChain.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(create("10.0.0.2").getStatus()).isEqualTo(503);
+            assertThat(doFilter(request("GET", "/abc", "10.0.0.2")).getStatus()).isEqualTo(200);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(create("10.0.0.3").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void doFilter_passesEndpointsWithoutLimit() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertThat(doFilter(request("GET", "/actuator/prometheus", "10.0.0.1")).getStatus()).isEqualTo(200);
+        }
+    }
+
+    private MockHttpServletResponse create(String client) throws Exception {
+        return doFilter(request("POST", "/urls", client));
+    }
+
+    private MockHttpServletResponse doFilter(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+        };
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(client);
+        return request;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.ibarkhatov.urlshortener.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionEndpointTest {
+
+    @Test
+    void of_groupsRequestsByEndpoint() {
+        assertThat(AdmissionEndpoint.of("POST", "/urls")).isEqualTo(AdmissionEndpoint.CREATE);
+        assertThat(AdmissionEndpoint.of("POST", "/urls/import")).isEqualTo(AdmissionEndpoint.CREATE);
+        assertThat(AdmissionEndpoint.of("GET", "/urls")).isEqualTo(AdmissionEndpoint.LIST);
+        assertThat(AdmissionEndpoint.of("DELETE", "/urls/42")).isEqualTo(AdmissionEndpoint.DELETE);
+        assertThat(AdmissionEndpoint.of("GET", "/aZ3x")).isEqualTo(AdmissionEndpoint.REDIRECT);
+        assertThat(AdmissionEndpoint.of("GET", "/analytics/top")).isEqualTo(AdmissionEndpoint.ANALYTICS);
+        assertThat(AdmissionEndpoint.of("GET", "/actuator")).isNull();
+        assertThat(AdmissionEndpoint.of("GET", "/actuator/health")).isNull();
+        assertThat(AdmissionEndpoint.of("GET", "/")).isNull();
+    }
+}
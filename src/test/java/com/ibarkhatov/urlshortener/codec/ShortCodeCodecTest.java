@@ -0,0 +1,81 @@
+package com.ibarkhatov.urlshortener.codec;
+
+import com.ibarkhatov.urlshortener.config.ShortCodeProperties;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShortCodeCodecTest {
+
+    private final ShortCodeCodec codec = new ShortCodeCodec(new ShortCodeProperties(true, 42L));
+
+    @Test
+    void decode_reversesEncode_acrossSizeClasses() {
+        long[] ids = {0, 1, 2, 61, 62, (1L << 24) - 1, 1L << 24, (1L << 32) - 1, 1L << 32, (1L << 40) - 1, 1L << 40,
+                839_299_365_868_340_223L};
+        for (long id : ids) {
+            assertThat(codec.decode(codec.encode(id))).as("id %d", id).isEqualTo(id);
+        }
+        for (long id = 1; id <= 100_000; id++) {
+            assertThat(codec.decode(codec.encode(id))).isEqualTo(id);
+        }
+    }
+
+    @Test
+    void encode_keepsCodesShortAndUnrelated() {
+        assertThat(codec.encode((1L << 24) - 1)).hasSizeLessThanOrEqualTo(5);
+        assertThat(codec.encode((1L << 32) - 1)).hasSizeLessThanOrEqualTo(6);
+        assertThat(codec.encode((1L << 40) - 1)).hasSizeLessThanOrEqualTo(7);
+
+        Set<String> codes = new HashSet<>();
+        for (long id = 1; id <= 1000; id++) {
+            codes.add(codec.encode(id));
+        }
+        assertThat(codes).hasSize(1000);
+        assertThat(codec.encode((1L << 40) + 2)).isNotEqualTo(codec.encode((1L << 40) + 1))
+                .doesNotStartWith(codec.encode((1L << 40) + 1).substring(0, 3));
+        assertThat(codec.decode(codec.encode(3L << 40 | 12345)) >>> 40).isEqualTo(3);
+        assertThat(codec.encode(2)).isNotEqualTo(codec.encode(1)).doesNotStartWith(codec.encode(1).substring(0, 2));
+    }
+
+    @Test
+    void encode_withoutObfuscation_isPlainBase62() {
+        ShortCodeCodec plain = new ShortCodeCodec(new ShortCodeProperties(false, null));
+
+        assertThat(plain.encode(0)).isEqualTo("0");
+        assertThat(plain.encode(61)).isEqualTo("z");
+        assertThat(plain.encode(62)).isEqualTo("10");
+        assertThat(plain.decode("10")).isEqualTo(62);
+    }
+
+    @Test
+    void decode_acceptsLegacyBase64Codes() {
+        for (long id : new long[]{1, 123, 1L << 40, Long.MAX_VALUE}) {
+            String legacy = Base64.encodeBase64URLSafeString(ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+            assertThat(codec.decode(legacy)).isEqualTo(id);
+        }
+    }
+
+    @Test
+    void decode_rejectsStringsThatCannotBeCodes() {
+        assertThat(codec.decode("")).isEqualTo(ShortCodeCodec.INVALID);
+        assertThat(codec.decode("abc-def")).isEqualTo(ShortCodeCodec.INVALID);
+        assertThat(codec.decode("AAAAAAAAAAB")).isEqualTo(ShortCodeCodec.INVALID);
+        assertThat(codec.decode("ü")).isEqualTo(ShortCodeCodec.INVALID);
+        assertThat(codec.decode("a".repeat(12))).isEqualTo(ShortCodeCodec.INVALID);
+        assertThatThrownBy(() -> codec.encode(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void properties_requireKey_whenObfuscating() {
+        assertThatThrownBy(() -> new ShortCodeProperties(true, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("SHORT_CODE_KEY");
+    }
+}
@@ -0,0 +1,72 @@
+package com.ibarkhatov.urlshortener.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RingBufferTest {
+
+    @Test
+    void offer_rejectsWhenFullUntilDrained() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        List<Integer> drained = new ArrayList<>();
+
+        assertThat(buffer.capacity()).isEqualTo(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        assertThat(buffer.offer(4)).isFalse();
+        assertThat(buffer.drain(drained::add, 2)).isEqualTo(2);
+        assertThat(buffer.offer(4)).isTrue();
+        assertThat(buffer.offer(5)).isTrue();
+        assertThat(buffer.offer(6)).isFalse();
+        assertThat(buffer.drain(drained::add, 10)).isEqualTo(4);
+
+        assertThat(drained).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void drain_keepsOrderOfEveryProducerUnderContention() throws InterruptedException {
+        RingBuffer<long[]> buffer = new RingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 10_000;
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            Thread thread = new Thread(() -> {
+                for (long i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(new long[]{producer, i})) {
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            });
+            thread.start();
+        }
+
+        long[] next = new long[producers];
+        int[] outOfOrder = new int[1];
+        int received = 0;
+        while (received < producers * perProducer) {
+            int drained = buffer.drain(element -> {
+                if (element[1] != next[(int) element[0]]++) {
+                    outOfOrder[0]++;
+                }
+            }, 16);
+            if (drained == 0) {
+                Thread.yield();
+            }
+            received += drained;
+        }
+        done.await();
+
+        assertThat(outOfOrder[0]).isZero();
+        assertThat(next).containsOnly(perProducer);
+        assertThat(buffer.size()).isZero();
+    }
+}
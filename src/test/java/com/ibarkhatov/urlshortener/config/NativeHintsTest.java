@@ -0,0 +1,32 @@
+package com.ibarkhatov.urlshortener.config;
+
+import com.ibarkhatov.urlshortener.repository.projection.TopItemView;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.SpringProxy;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.core.DecoratingProxy;
+import org.springframework.data.projection.TargetAware;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NativeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    NativeHintsTest() {
+        new NativeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void registersProjectionProxy() {
+        assertThat(RuntimeHintsPredicates.proxies().forInterfaces(TopItemView.class, TargetAware.class,
+                SpringProxy.class, Advised.class, DecoratingProxy.class)).accepts(hints);
+    }
+
+    @Test
+    void registersChangelogs() {
+        assertThat(RuntimeHintsPredicates.resource().forResource("db/changelog/master.yaml")).accepts(hints);
+    }
+}
@@ -0,0 +1,60 @@
+package com.ibarkhatov.urlshortener.controller;
+
+import com.ibarkhatov.urlshortener.dto.TopUrlResponse;
+import com.ibarkhatov.urlshortener.metrics.UrlShortenerMetrics;
+import com.ibarkhatov.urlshortener.service.UrlShorteningService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalyticsControllerTest {
+    private final UrlShorteningService service = Mockito.mock(UrlShorteningService.class);
+    private final AnalyticsController controller = new AnalyticsController(service, null, null, null,
+            new UrlShortenerMetrics(new SimpleMeterRegistry()));
+
+    private final TopUrlResponse top = new TopUrlResponse("x", "https://x", 7, null, null);
+
+    @Test
+    void top_readsDatabaseByDefault() {
+        when(service.getTopByWindow("1h", 5)).thenReturn(List.of(top));
+
+        ResponseEntity<List<TopUrlResponse>> response = controller.top("1h", 5, false, false);
+
+        assertThat(response.getBody()).containsExactly(top);
+        assertThat(response.getHeaders().containsKey(AnalyticsController.ESTIMATE_HEADER)).isFalse();
+        verify(service, never()).estimateTopByWindow(anyString(), anyInt());
+    }
+
+    @Test
+    void top_marksNodeLocalEstimate() {
+        when(service.estimateTopByWindow("1h", 5)).thenReturn(Optional.of(List.of(top)));
+
+        ResponseEntity<List<TopUrlResponse>> response = controller.top("1h", 5, true, false);
+
+        assertThat(response.getBody()).containsExactly(top);
+        assertThat(response.getHeaders().getFirst(AnalyticsController.ESTIMATE_HEADER)).isEqualTo("node-local");
+        verify(service, never()).getTopByWindow(anyString(), anyInt());
+    }
+
+    @Test
+    void top_fallsBackToDatabase_whenNoEstimate() {
+        when(service.estimateTopByWindow("1h", 5)).thenReturn(Optional.empty());
+        when(service.getTopByWindow("1h", 5)).thenReturn(List.of(top));
+
+        ResponseEntity<List<TopUrlResponse>> response = controller.top("1h", 5, true, false);
+
+        assertThat(response.getBody()).containsExactly(top);
+        assertThat(response.getHeaders().containsKey(AnalyticsController.ESTIMATE_HEADER)).isFalse();
+    }
+}
@@ -0,0 +1,53 @@
+package com.ibarkhatov.urlshortener.controller;
+
+import com.ibarkhatov.urlshortener.config.UrlBatchProperties;
+import com.ibarkhatov.urlshortener.dto.BatchItemResponse;
+import com.ibarkhatov.urlshortener.dto.CreateUrlRequest;
+import com.ibarkhatov.urlshortener.metrics.UrlShortenerMetrics;
+import com.ibarkhatov.urlshortener.service.BulkUrlService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UrlControllerTest {
+    private final BulkUrlService bulkUrlService = Mockito.mock(BulkUrlService.class);
+    private final UrlController controller = new UrlController(null, bulkUrlService, null, null,
+            new UrlShortenerMetrics(new SimpleMeterRegistry()), new UrlBatchProperties(2));
+
+    @Test
+    void createBatch_createsBatchUpToMaxSize() {
+        List<CreateUrlRequest> requests = List.of(new CreateUrlRequest("https://a.example"), new CreateUrlRequest("https://b.example"));
+        when(bulkUrlService.createAll(requests, 0)).thenReturn(List.of(
+                new BatchItemResponse(0, null, null), new BatchItemResponse(1, null, null)));
+
+        ResponseEntity<List<BatchItemResponse>> response = controller.createBatch(requests);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).hasSize(2);
+    }
+
+    @Test
+    void createBatch_rejectsBatchOverMaxSize_pointingAtImport() {
+        List<CreateUrlRequest> requests = List.of(new CreateUrlRequest("https://a.example"),
+                new CreateUrlRequest("https://b.example"), new CreateUrlRequest("https://c.example"));
+
+        ResponseEntity<?> response = controller.createBatch(requests);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+        assertThat(response.getBody()).isInstanceOfSatisfying(ProblemDetail.class,
+                problem -> assertThat(problem.getDetail()).contains("/urls/import"));
+        verify(bulkUrlService, never()).createAll(any(), anyInt());
+    }
+}
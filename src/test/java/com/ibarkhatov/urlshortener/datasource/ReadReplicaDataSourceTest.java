@@ -0,0 +1,72 @@
+package com.ibarkhatov.urlshortener.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadReplicaDataSourceTest {
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private final ResultSet lag = mock(ResultSet.class);
+
+    private ReadReplicaDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Statement statement = mock(Statement.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(replicaConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(ReadReplicaDataSource.LAG_QUERY)).thenReturn(lag);
+        when(lag.next()).thenReturn(true);
+        dataSource = new ReadReplicaDataSource(primary, Map.of("replica-1", replica), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void getConnection_usesPrimary_untilReplicaWasChecked() throws SQLException {
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void getConnection_usesReplica_whenLagWithinTolerance() throws SQLException {
+        when(lag.getDouble(1)).thenReturn(1.5);
+
+        dataSource.checkReplicas();
+
+        assertThat(dataSource.usableReplicas()).isEqualTo(1);
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void getConnection_usesPrimary_whenReplicaLagsTooFarBehind() throws SQLException {
+        when(lag.getDouble(1)).thenReturn(5.5);
+
+        dataSource.checkReplicas();
+
+        assertThat(dataSource.usableReplicas()).isZero();
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void getConnection_fallsBackToPrimary_andSkipsReplica_whenReplicaIsUnreachable() throws SQLException {
+        when(lag.getDouble(1)).thenReturn(0.0);
+        dataSource.checkReplicas();
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(dataSource.usableReplicas()).isZero();
+    }
+}
@@ -0,0 +1,70 @@
+package com.ibarkhatov.urlshortener.datasource;
+
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardsTest {
+    private final Shards shards = new Shards(new ShardingProperties(true,
+            List.of("jdbc:postgresql://shard-1/db", "jdbc:postgresql://shard-2/db"), 1, null, 3));
+
+    @AfterEach
+    void tearDown() {
+        shards.destroy();
+    }
+
+    @Test
+    void shardOf_readsShardFromUpperIdBits() {
+        assertThat(shards.shardOf(shards.toId(2, 12345))).isEqualTo(2);
+        assertThat(shards.shardOf(12345)).isZero();
+        assertThat(shards.shardOf(shards.toId(3, 1))).isEqualTo(Shards.NONE);
+        assertThat(shards.shardOf(-1)).isEqualTo(Shards.NONE);
+        assertThat(shards.toId(1, 5) & ((1L << Shards.SHARD_SHIFT) - 1)).isEqualTo(5);
+        assertThatThrownBy(() -> shards.toId(1, 1L << Shards.SHARD_SHIFT)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void disabled_keepsIdsUnchanged() {
+        Shards single = new Shards(new ShardingProperties(false, List.of("jdbc:postgresql://shard-1/db"), 1, null, 3));
+
+        assertThat(single.count()).isEqualTo(1);
+        assertThat(single.toId(single.next(), 42)).isEqualTo(42);
+        assertThat(single.shardOf(1L << Shards.SHARD_SHIFT)).isEqualTo(Shards.NONE);
+    }
+
+    @Test
+    void next_spreadsRoundRobin() {
+        assertThat(List.of(shards.next(), shards.next(), shards.next(), shards.next())).containsExactly(0, 1, 2, 0);
+    }
+
+    @Test
+    void on_bindsShardForTheActionOnly() {
+        assertThat(shards.on(2, () -> shards.on(1, Shards::current) * 10 + Shards.current())).isEqualTo(12);
+        assertThat(Shards.current()).isZero();
+    }
+
+    @Test
+    void gather_runsOnEveryShardAndKeepsShardOrder() {
+        List<String> results = shards.gather(shard -> shard + "@" + Shards.current() + ":" + Thread.currentThread().getName());
+
+        assertThat(results).hasSize(3);
+        for (int shard = 0; shard < 3; shard++) {
+            assertThat(results.get(shard)).startsWith(shard + "@" + shard + ":shard-gather-");
+        }
+    }
+
+    @Test
+    void gather_rethrowsFailureOfAShard() {
+        assertThatThrownBy(() -> shards.gather(shard -> {
+            if (shard == 1) {
+                throw new IllegalArgumentException("shard 1 down");
+            }
+            return shard;
+        })).isInstanceOf(IllegalArgumentException.class).hasMessage("shard 1 down");
+    }
+}
@@ -0,0 +1,112 @@
+package com.ibarkhatov.urlshortener.maintenance;
+
+import com.ibarkhatov.urlshortener.config.AccessPartitionProperties;
+import com.ibarkhatov.urlshortener.config.ClickRollupProperties;
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.repository.AccessPartitionRepository;
+import com.ibarkhatov.urlshortener.repository.ClickJdbcRepository;
+import com.ibarkhatov.urlshortener.repository.UniqueVisitorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AccessPartitionMaintenanceTest {
+    private static final String EXPIRED = AccessPartitionRepository.partitionName(LocalDate.now(ZoneOffset.UTC).minusDays(30));
+    private static final String BUSY = AccessPartitionRepository.partitionName(LocalDate.now(ZoneOffset.UTC).minusDays(31));
+    private static final String KEPT = AccessPartitionRepository.partitionName(LocalDate.now(ZoneOffset.UTC).minusDays(2));
+
+    private AccessPartitionRepository repository;
+    private ClickJdbcRepository clickRepository;
+    private TransactionTemplate transactionTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private AccessPartitionMaintenance maintenance;
+
+    @BeforeEach
+    void setUp() {
+        repository = Mockito.mock(AccessPartitionRepository.class);
+        clickRepository = Mockito.mock(ClickJdbcRepository.class);
+        transactionTemplate = Mockito.mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        doCallRealMethod().when(transactionTemplate).executeWithoutResult(any());
+        when(repository.tryLock()).thenReturn(true);
+        meterRegistry = new SimpleMeterRegistry();
+        maintenance = new AccessPartitionMaintenance(repository, Mockito.mock(UniqueVisitorRepository.class),
+                new AccessPartitionProperties(1, Duration.ofDays(7), Duration.ofSeconds(2)), transactionTemplate,
+                new Shards(new ShardingProperties(false, List.of(), 0, null, 0)), clickRepository,
+                new ClickRollupProperties(Duration.ofDays(2), 100), meterRegistry);
+    }
+
+    @Test
+    void maintain_dropsExpiredPartitionsInTransactionsOfTheirOwn() {
+        when(repository.findPartitions()).thenReturn(List.of(EXPIRED, BUSY, KEPT, AccessPartitionRepository.DEFAULT_PARTITION));
+        doThrow(new CannotAcquireLockException("lock timeout"))
+                .when(repository).detachAndDropPartition(BUSY, Duration.ofSeconds(2));
+
+        maintenance.maintain();
+
+        verify(transactionTemplate, times(5)).execute(any());
+        verify(repository).detachAndDropPartition(EXPIRED, Duration.ofSeconds(2));
+        verify(repository).detachAndDropPartition(BUSY, Duration.ofSeconds(2));
+        verify(repository, never()).detachAndDropPartition(eq(KEPT), any());
+        verify(repository, never()).detachAndDropPartition(eq(AccessPartitionRepository.DEFAULT_PARTITION), any());
+    }
+
+    @Test
+    void maintain_exportsRowsOfDefaultPartition() {
+        when(repository.countDefaultRows()).thenReturn(42L);
+
+        maintenance.maintain();
+
+        assertThat(meterRegistry.get("urlshortener.access.default-partition.rows").tag("shard", "0").gauge().value())
+                .isEqualTo(42);
+    }
+
+    @Test
+    void maintain_deletesMinuteRollupsPastTheirRetentionAndHourRollupsPastTheAccessRetention() {
+        when(clickRepository.deleteMinuteBucketsBefore(any(), eq(100))).thenReturn(100, 100, 7);
+        Instant now = Instant.now();
+
+        maintenance.maintain();
+
+        ArgumentCaptor<Instant> minutes = ArgumentCaptor.forClass(Instant.class);
+        verify(clickRepository, times(3)).deleteMinuteBucketsBefore(minutes.capture(), eq(100));
+        assertThat(minutes.getValue()).isBetween(now.minus(Duration.ofDays(2)).minus(Duration.ofMinutes(1)), now.minus(Duration.ofDays(2)));
+        ArgumentCaptor<Instant> hours = ArgumentCaptor.forClass(Instant.class);
+        verify(clickRepository).deleteHourBucketsBefore(hours.capture(), eq(100));
+        assertThat(hours.getValue()).isBetween(now.minus(Duration.ofDays(7)).minus(Duration.ofHours(1)), now.minus(Duration.ofDays(7)));
+    }
+
+    @Test
+    void maintain_leavesPartitionsAloneWithoutTheLock() {
+        when(repository.tryLock()).thenReturn(false);
+
+        maintenance.maintain();
+
+        verify(repository, never()).findPartitions();
+        verify(repository, never()).detachAndDropPartition(any(), any());
+        verify(clickRepository, never()).deleteMinuteBucketsBefore(any(), anyInt());
+    }
+}
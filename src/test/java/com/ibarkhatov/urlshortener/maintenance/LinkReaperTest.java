@@ -0,0 +1,68 @@
+package com.ibarkhatov.urlshortener.maintenance;
+
+import com.ibarkhatov.urlshortener.config.LinkReaperProperties;
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.repository.LinkReclamationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LinkReaperTest {
+    private LinkReclamationRepository repository;
+    private LinkReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        repository = Mockito.mock(LinkReclamationRepository.class);
+        TransactionTemplate transactionTemplate = Mockito.mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        reaper = new LinkReaper(repository, new LinkReaperProperties(true, Duration.ofMinutes(1), Duration.ofHours(2),
+                10, 100, 5, Duration.ZERO), transactionTemplate,
+                new Shards(new ShardingProperties(false, List.of(), 0, null, 0)), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void reclaimBatch_keepsLinksWhileHistoryRemains() {
+        when(repository.lockDeleted(any(), anyInt())).thenReturn(List.of(1L, 2L));
+        when(repository.deleteHistory(List.of(1L, 2L), 100)).thenReturn(100);
+
+        assertThat(reaper.reclaimBatch()).isTrue();
+
+        verify(repository, never()).deleteLinks(any());
+    }
+
+    @Test
+    void reclaimBatch_deletesLinksOnceHistoryIsGone() {
+        when(repository.lockDeleted(any(), anyInt())).thenReturn(List.of(1L, 2L));
+        when(repository.deleteHistory(List.of(1L, 2L), 100)).thenReturn(42);
+
+        assertThat(reaper.reclaimBatch()).isTrue();
+
+        verify(repository).deleteLinks(List.of(1L, 2L));
+    }
+
+    @Test
+    void run_stopsAtMaxBatches() {
+        when(repository.lockDeleted(any(), anyInt())).thenReturn(List.of(1L));
+        when(repository.deleteHistory(any(), anyInt())).thenReturn(100);
+
+        reaper.run();
+
+        verify(repository, times(5)).deleteHistory(any(), anyInt());
+    }
+}
@@ -0,0 +1,30 @@
+package com.ibarkhatov.urlshortener.reactive;
+
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReactiveConfigTest {
+
+    @Test
+    void rejectsMoreThanOneShard() {
+        Shards shards = new Shards(new ShardingProperties(true, List.of("jdbc:postgresql://shard-1/db"), 1, Duration.ofSeconds(1), 1));
+
+        assertThatThrownBy(() -> new ReactiveConfig(shards))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("shard 0");
+    }
+
+    @Test
+    void acceptsSingleShard() {
+        Shards shards = new Shards(new ShardingProperties(true, List.of(), 1, Duration.ofSeconds(1), 1));
+
+        assertThatCode(() -> new ReactiveConfig(shards)).doesNotThrowAnyException();
+    }
+}
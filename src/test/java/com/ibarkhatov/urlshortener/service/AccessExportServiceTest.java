@@ -0,0 +1,40 @@
+package com.ibarkhatov.urlshortener.service;
+
+import com.ibarkhatov.urlshortener.config.AccessExportProperties;
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.repository.AccessExportRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+
+class AccessExportServiceTest {
+
+    @Test
+    void export_copiesOneSliceAtATime_withHeaderOnlyInFirst() throws Exception {
+        AccessExportRepository repository = Mockito.mock(AccessExportRepository.class);
+        AccessExportService service = new AccessExportService(repository, new AccessExportProperties(Duration.ofHours(1)),
+                new Shards(new ShardingProperties(false, List.of(), 0, null, 0)));
+        Instant from = Instant.parse("2024-05-01T10:15:00Z");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export(from, Instant.parse("2024-05-01T12:45:00Z"), AccessExportFormat.CSV, out);
+
+        InOrder inOrder = Mockito.inOrder(repository);
+        inOrder.verify(repository).copyAccesses(from, Instant.parse("2024-05-01T11:15:00Z"), AccessExportFormat.CSV, true, out);
+        inOrder.verify(repository).copyAccesses(Instant.parse("2024-05-01T11:15:00Z"), Instant.parse("2024-05-01T12:15:00Z"),
+                AccessExportFormat.CSV, false, out);
+        inOrder.verify(repository).copyAccesses(Instant.parse("2024-05-01T12:15:00Z"), Instant.parse("2024-05-01T12:45:00Z"),
+                AccessExportFormat.CSV, false, out);
+        Mockito.verify(repository, Mockito.times(3)).copyAccesses(any(), any(), eq(AccessExportFormat.CSV), anyBoolean(), eq(out));
+    }
+}
@@ -0,0 +1,115 @@
+package com.ibarkhatov.urlshortener.service;
+
+import com.ibarkhatov.urlshortener.bloom.ShortCodeBloomFilter;
+import com.ibarkhatov.urlshortener.codec.ShortCodeCodec;
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import com.ibarkhatov.urlshortener.config.ShortCodeProperties;
+import com.ibarkhatov.urlshortener.config.UrlDedupProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.domain.ShortUrl;
+import com.ibarkhatov.urlshortener.dto.BatchItemResponse;
+import com.ibarkhatov.urlshortener.dto.CreateUrlRequest;
+import com.ibarkhatov.urlshortener.dto.UrlResponse;
+import com.ibarkhatov.urlshortener.mapper.ShortUrlMapper;
+import com.ibarkhatov.urlshortener.repository.ShortUrlIdAllocator;
+import com.ibarkhatov.urlshortener.repository.ShortUrlJdbcRepository;
+import jakarta.validation.Validation;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.List.of;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+
+class BulkUrlServiceTest {
+
+    private ShortUrlJdbcRepository jdbcRepository;
+    private ShortUrlIdAllocator idAllocator;
+    private ShortUrlMapper mapper;
+    private TransactionTemplate transactionTemplate;
+    private BulkUrlService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcRepository = Mockito.mock(ShortUrlJdbcRepository.class);
+        idAllocator = Mockito.mock(ShortUrlIdAllocator.class);
+        mapper = Mockito.mock(ShortUrlMapper.class);
+        Mockito.when(mapper.toDto(Mockito.any(ShortUrl.class))).thenAnswer(inv -> {
+            ShortUrl e = inv.getArgument(0);
+            return new UrlResponse(e.getId(), e.getOriginalUrl(), e.getShortCode(), e.getCreatedAt(), e.getClickCount(), e.getLastAccessedAt(),
+                    e.getExpiresAt(), e.getMaxClicks());
+        });
+        transactionTemplate = Mockito.mock(TransactionTemplate.class);
+        Mockito.when(transactionTemplate.execute(Mockito.any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        service = service(false);
+    }
+
+    private BulkUrlService service(boolean dedup) {
+        return new BulkUrlService(jdbcRepository, Mockito.mock(ShortCodeBloomFilter.class), idAllocator, new ShortCodeCodec(new ShortCodeProperties(true, 42L)), mapper,
+                Validation.buildDefaultValidatorFactory().getValidator(), new Shards(new ShardingProperties(false, List.of(), 0, null, 0)), transactionTemplate,
+                new UrlDedupProperties(dedup));
+    }
+
+    @Test
+    void createAll_reportsInvalidItems_withoutAbortingTheBatch() {
+        Mockito.when(idAllocator.next(2)).thenReturn(new long[]{7L, 8L});
+
+        List<BatchItemResponse> result = service.createAll(of(
+                new CreateUrlRequest("https://a.com"),
+                new CreateUrlRequest("not a url"),
+                new CreateUrlRequest("https://c.com")
+        ), 10);
+
+        assertThat(result).extracting(BatchItemResponse::index).containsExactly(10, 11, 12);
+        assertThat(result.get(0).url().id()).isEqualTo(7L);
+        assertThat(result.get(1).url()).isNull();
+        assertThat(result.get(1).error()).startsWith("originalUrl");
+        assertThat(result.get(2).url().originalUrl()).isEqualTo("https://c.com");
+        ArgumentMatcher<List<ShortUrl>> twoRows = l -> l.size() == 2 && l.get(1).getShortCode() != null;
+        Mockito.verify(jdbcRepository).insertAll(argThat(twoRows));
+    }
+
+    @Test
+    void createAll_withDedup_returnsExistingLinks_andInsertsOnlyLimitedOnesPlainly() {
+        BulkUrlService dedupService = service(true);
+        Mockito.when(idAllocator.next(3)).thenReturn(new long[]{7L, 8L, 9L});
+        Mockito.when(idAllocator.next(1)).thenReturn(new long[]{10L});
+        ShortUrl existing = new ShortUrl();
+        existing.setId(1L);
+        existing.setOriginalUrl("https://a.com");
+        existing.setShortCode("aaa");
+        ShortUrl inserted = new ShortUrl();
+        inserted.setId(9L);
+        inserted.setOriginalUrl("https://b.com");
+        inserted.setShortCode("bbb");
+        Mockito.when(jdbcRepository.findAllByOriginalUrlHash(Mockito.anyList())).thenReturn(Map.of(
+                hash("https://a.com"), existing,
+                hash("https://b.com"), inserted));
+
+        List<BatchItemResponse> result = dedupService.createAll(of(
+                new CreateUrlRequest("https://a.com"),
+                new CreateUrlRequest("https://A.com/"),
+                new CreateUrlRequest("https://b.com"),
+                new CreateUrlRequest("https://a.com", null, 5L)
+        ), 0);
+
+        assertThat(result).extracting(item -> item.url().id()).containsExactly(1L, 1L, 9L, 10L);
+        ArgumentMatcher<List<ShortUrl>> threeRows = l -> l.size() == 3;
+        Mockito.verify(jdbcRepository).insertAllIfAbsent(argThat(threeRows), Mockito.anyList());
+        ArgumentMatcher<List<ShortUrl>> limitedRow = l -> l.size() == 1 && l.get(0).getMaxClicks() == 5L;
+        Mockito.verify(jdbcRepository).insertAll(argThat(limitedRow));
+    }
+
+    private static ByteBuffer hash(String url) {
+        return ByteBuffer.wrap(DigestUtils.sha256(UrlNormalizer.normalize(url)));
+    }
+}
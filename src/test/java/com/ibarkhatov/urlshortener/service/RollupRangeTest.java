@@ -0,0 +1,62 @@
+package com.ibarkhatov.urlshortener.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollupRangeTest {
+    private static final Duration RETENTION = Duration.ofDays(2);
+
+    @Test
+    void of_splitsLongWindowIntoRawMinuteAndHourParts() {
+        Instant from = Instant.parse("2024-01-01T10:15:30Z");
+        Instant now = Instant.parse("2024-01-02T12:40:10Z");
+
+        RollupRange range = RollupRange.of(from, now, RETENTION);
+
+        assertThat(range.minuteFrom()).isEqualTo(Instant.parse("2024-01-01T10:16:00Z"));
+        assertThat(range.hourFrom()).isEqualTo(Instant.parse("2024-01-01T11:00:00Z"));
+        assertThat(range.hourTo()).isEqualTo(Instant.parse("2024-01-02T12:00:00Z"));
+        assertThat(range.minuteTo()).isEqualTo(Instant.parse("2024-01-02T12:40:00Z"));
+    }
+
+    @Test
+    void of_skipsHourBuckets_whenNoFullHourFits() {
+        Instant from = Instant.parse("2024-01-01T10:15:30Z");
+        Instant now = Instant.parse("2024-01-01T10:45:10Z");
+
+        RollupRange range = RollupRange.of(from, now, RETENTION);
+
+        assertThat(range.minuteFrom()).isEqualTo(Instant.parse("2024-01-01T10:16:00Z"));
+        assertThat(range.hourFrom()).isEqualTo(Instant.parse("2024-01-01T10:45:00Z"));
+        assertThat(range.hourTo()).isEqualTo(range.hourFrom());
+        assertThat(range.minuteTo()).isEqualTo(range.hourFrom());
+    }
+
+    @Test
+    void of_usesRawRowsOnly_forSubMinuteWindows() {
+        Instant from = Instant.parse("2024-01-01T10:15:30Z");
+        Instant now = Instant.parse("2024-01-01T10:15:40Z");
+
+        RollupRange range = RollupRange.of(from, now, RETENTION);
+
+        assertThat(range.minuteFrom()).isEqualTo(from);
+        assertThat(range.minuteTo()).isEqualTo(from);
+    }
+
+    @Test
+    void of_readsPartialFirstHourFromRawRows_beyondMinuteRetention() {
+        Instant from = Instant.parse("2024-01-01T10:15:30Z");
+        Instant now = Instant.parse("2024-01-05T12:40:10Z");
+
+        RollupRange range = RollupRange.of(from, now, RETENTION);
+
+        assertThat(range.minuteFrom()).isEqualTo(Instant.parse("2024-01-01T11:00:00Z"));
+        assertThat(range.hourFrom()).isEqualTo(range.minuteFrom());
+        assertThat(range.hourTo()).isEqualTo(Instant.parse("2024-01-05T12:00:00Z"));
+        assertThat(range.minuteTo()).isEqualTo(Instant.parse("2024-01-05T12:40:00Z"));
+    }
+}
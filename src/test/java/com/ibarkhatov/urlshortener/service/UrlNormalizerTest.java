@@ -0,0 +1,22 @@
+package com.ibarkhatov.urlshortener.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UrlNormalizerTest {
+
+    @Test
+    void normalize_lowercasesSchemeAndHost_andDropsDefaultPort() {
+        assertThat(UrlNormalizer.normalize("HTTPS://Example.COM:443")).isEqualTo("https://example.com/");
+        assertThat(UrlNormalizer.normalize("http://example.com:80/a")).isEqualTo("http://example.com/a");
+        assertThat(UrlNormalizer.normalize(" http://example.com:8080/a ")).isEqualTo("http://example.com:8080/a");
+    }
+
+    @Test
+    void normalize_keepsPathQueryAndFragment() {
+        assertThat(UrlNormalizer.normalize("https://example.com/Path?B=2&a=1#Top"))
+                .isEqualTo("https://example.com/Path?B=2&a=1#Top");
+        assertThat(UrlNormalizer.normalize("https://user@example.com/a%20b")).isEqualTo("https://user@example.com/a%20b");
+    }
+}
@@ -1,84 +1,164 @@
 package com.ibarkhatov.urlshortener.service;
 
+import com.ibarkhatov.urlshortener.bloom.ShortCodeBloomFilter;
+import com.ibarkhatov.urlshortener.cache.CachedRedirect;
+import com.ibarkhatov.urlshortener.cache.RedirectCache;
+import com.ibarkhatov.urlshortener.codec.ShortCodeCodec;
+import com.ibarkhatov.urlshortener.config.ClickRollupProperties;
+import com.ibarkhatov.urlshortener.config.RedirectCacheProperties;
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import com.ibarkhatov.urlshortener.config.ShortCodeProperties;
+import com.ibarkhatov.urlshortener.config.UrlDedupProperties;
+import com.ibarkhatov.urlshortener.config.UrlListingProperties;
+import com.ibarkhatov.urlshortener.datasource.ShardReads;
+import com.ibarkhatov.urlshortener.datasource.Shards;
 import com.ibarkhatov.urlshortener.domain.ShortUrl;
 import com.ibarkhatov.urlshortener.dto.CreateUrlRequest;
 import com.ibarkhatov.urlshortener.dto.TopUrlResponse;
+import com.ibarkhatov.urlshortener.dto.UrlPageResponse;
 import com.ibarkhatov.urlshortener.dto.UrlResponse;
 import com.ibarkhatov.urlshortener.mapper.ShortUrlMapper;
 import com.ibarkhatov.urlshortener.mapper.TopUrlMapper;
+import com.ibarkhatov.urlshortener.repository.ShortUrlIdAllocator;
+import com.ibarkhatov.urlshortener.repository.ShortUrlJdbcRepository;
 import com.ibarkhatov.urlshortener.repository.ShortUrlRepository;
 import com.ibarkhatov.urlshortener.repository.projection.ShortUrlClickView;
 import com.ibarkhatov.urlshortener.repository.projection.TopItemView;
-import org.apache.commons.codec.binary.Base64;
+import com.ibarkhatov.urlshortener.snapshot.RedirectSnapshotStore;
+import com.ibarkhatov.urlshortener.tracking.ClickTracker;
+import com.ibarkhatov.urlshortener.trending.TrendingTracker;
+import com.ibarkhatov.urlshortener.uniques.UniqueVisitorTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.nio.ByteBuffer;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static java.util.List.of;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
 class UrlShorteningServiceTest {
+    private static final long VISITOR = 42L;
 
     private ShortUrlRepository repository;
+    private ShortUrlJdbcRepository jdbcRepository;
+    private ShortUrlIdAllocator idAllocator;
     private ShortUrlMapper mapper;
     private TopUrlMapper topUrlMapper;
+    private RedirectCache redirectCache;
+    private ShortCodeBloomFilter shortCodeFilter;
+    private ClickTracker clickTracker;
+    private UniqueVisitorTracker uniqueVisitors;
+    private TrendingTracker trendingTracker;
+    private ShortCodeCodec codec;
+    private DataSourceTransactionManager transactionManager;
     private UrlShorteningService service;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws SQLException {
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        when(dataSource.getConnection()).thenAnswer(inv -> Mockito.mock(Connection.class));
+        transactionManager = new DataSourceTransactionManager(dataSource);
         repository = Mockito.mock(ShortUrlRepository.class);
+        jdbcRepository = Mockito.mock(ShortUrlJdbcRepository.class);
+        idAllocator = Mockito.mock(ShortUrlIdAllocator.class);
         mapper = Mockito.mock(ShortUrlMapper.class);
         topUrlMapper = Mockito.mock(TopUrlMapper.class);
-        service = new UrlShorteningService(repository, mapper, topUrlMapper);
+        redirectCache = new RedirectCache(new RedirectCacheProperties(100, Duration.ofMinutes(1), 0), new SimpleMeterRegistry());
+        shortCodeFilter = Mockito.mock(ShortCodeBloomFilter.class);
+        when(shortCodeFilter.mightContain(any())).thenReturn(true);
+        clickTracker = Mockito.mock(ClickTracker.class);
+        uniqueVisitors = Mockito.mock(UniqueVisitorTracker.class);
+        trendingTracker = Mockito.mock(TrendingTracker.class);
+        codec = new ShortCodeCodec(new ShortCodeProperties(true, 42L));
+        service = newService(false);
+    }
+
+    private UrlShorteningService newService(boolean dedup) {
+        return newService(dedup, new Shards(new ShardingProperties(false, List.of(), 0, null, 0)));
+    }
+
+    private UrlShorteningService newService(boolean dedup, Shards shards) {
+        return new UrlShorteningService(repository, jdbcRepository, shards, new ShardReads(shards, transactionManager), idAllocator, codec,
+                mapper, topUrlMapper, redirectCache, Mockito.mock(RedirectSnapshotStore.class), shortCodeFilter, clickTracker, uniqueVisitors, new UrlListingProperties(100, 1000, 1000),
+                trendingTracker, new UrlDedupProperties(dedup), new ClickRollupProperties(Duration.ofDays(2), 1000));
     }
 
     @Test
-    void createShortUrl_generatesUrlSafeBase64CodeFromId() {
+    void createShortUrl_generatesShortCodeDecodingToId() {
         long newId = 123L;
         String originalUrl = "https://originalurl.com/page";
         CreateUrlRequest request = new CreateUrlRequest(originalUrl);
 
-        ArgumentMatcher<ShortUrl> firstSave = e -> e != null && e.getId() == null && e.getShortCode() == null;
-        when(repository.save(argThat(firstSave))).thenAnswer(inv -> {
+        when(idAllocator.next()).thenReturn(newId);
+        ArgumentMatcher<ShortUrl> singleSave = e -> e != null && e.getId() != null && e.getShortCode() != null;
+        when(repository.save(argThat(singleSave))).thenAnswer(inv -> {
             ShortUrl in = inv.getArgument(0);
-            ShortUrl out = new ShortUrl();
-            out.setId(newId);
-            out.setOriginalUrl(in.getOriginalUrl());
-            out.setClickCount(in.getClickCount());
-            out.setCreatedAt(Instant.now());
-            return out;
+            in.setCreatedAt(Instant.now());
+            return in;
         });
 
-        ArgumentMatcher<ShortUrl> secondSave = e -> e != null && e.getId() != null && e.getShortCode() != null;
-        when(repository.save(argThat(secondSave))).thenAnswer(inv -> inv.getArgument(0));
-
         Mockito.when(mapper.toDto(Mockito.any(ShortUrl.class))).thenAnswer(inv -> {
             ShortUrl e = inv.getArgument(0);
-            return new UrlResponse(e.getId(), e.getOriginalUrl(), e.getShortCode(), e.getCreatedAt(), e.getClickCount(), e.getLastAccessedAt());
+            return new UrlResponse(e.getId(), e.getOriginalUrl(), e.getShortCode(), e.getCreatedAt(), e.getClickCount(), e.getLastAccessedAt(),
+                    e.getExpiresAt(), e.getMaxClicks());
         });
 
         UrlResponse response = service.createShortUrl(request);
 
-        byte[] idBytes = ByteBuffer.allocate(Long.BYTES).putLong(newId).array();
-        String expectedCode = Base64.encodeBase64URLSafeString(idBytes);
-
         assertThat(response.id()).isEqualTo(newId);
         assertThat(response.originalUrl()).isEqualTo(originalUrl);
-        assertThat(response.shortCode()).isEqualTo(expectedCode);
+        assertThat(response.shortCode()).hasSizeLessThanOrEqualTo(7);
+        assertThat(codec.decode(response.shortCode())).isEqualTo(newId);
         assertThat(response.clickCount()).isZero();
         assertThat(response.createdAt()).isNotNull();
 
-        Mockito.verify(repository, times(2)).save(any(ShortUrl.class));
+        Mockito.verify(repository, times(1)).save(any(ShortUrl.class));
+    }
+
+    @Test
+    void createShortUrl_withDedup_returnsLinkCommittedByConcurrentCreate() {
+        UrlShorteningService dedupService = newService(true);
+        ShortUrl existing = new ShortUrl();
+        existing.setId(7L);
+        existing.setOriginalUrl("https://Example.com");
+        existing.setShortCode(codec.encode(7L));
+        byte[] hash = DigestUtils.sha256("https://example.com/");
+
+        when(idAllocator.next()).thenReturn(123L);
+        when(jdbcRepository.insertIfAbsent(any(ShortUrl.class), argThat(h -> Arrays.equals(h, hash))))
+                .thenReturn(Optional.empty());
+        when(jdbcRepository.findByOriginalUrlHash(argThat(h -> Arrays.equals(h, hash))))
+                .thenReturn(Optional.of(existing));
+        when(mapper.toDto(existing)).thenReturn(new UrlResponse(7L, "https://Example.com", existing.getShortCode(),
+                null, 0, null, null, null));
+
+        UrlResponse response = dedupService.createShortUrl(new CreateUrlRequest("HTTPS://example.com:443"));
+
+        assertThat(response.id()).isEqualTo(7L);
+        Mockito.verify(repository, Mockito.never()).save(any());
     }
 
     @Test
@@ -89,27 +169,112 @@ class UrlShorteningServiceTest {
         var view = Mockito.mock(ShortUrlClickView.class);
         Mockito.when(view.getId()).thenReturn(10L);
         Mockito.when(view.getOriginalUrl()).thenReturn(original);
-        Mockito.when(repository.incrementAndReturn(code)).thenReturn(Optional.of(view));
+        Mockito.when(repository.incrementAndReturn(codec.decode(code), code)).thenReturn(Optional.of(view));
 
-        Optional<String> result = service.resolveAndTrack(code);
+        Optional<String> result = service.resolveAndTrack(code, VISITOR);
 
         assertThat(result).isPresent();
         assertThat(result.get()).isEqualTo(original);
-        Mockito.verify(repository).incrementAndReturn(code);
+        Mockito.verify(repository).incrementAndReturn(codec.decode(code), code);
+    }
+
+    @Test
+    void resolveAndTrack_skipsDatabase_whenBloomFilterRulesCodeOut() {
+        String code = codec.encode(77L);
+        when(shortCodeFilter.mightContain(code)).thenReturn(false);
+
+        Optional<String> result = service.resolveAndTrack(code, VISITOR);
+
+        assertThat(result).isEmpty();
+        Mockito.verifyNoInteractions(repository);
     }
 
     @Test
     void resolveAndTrack_returnsEmpty_whenNotFound() {
-        Mockito.when(repository.incrementAndReturn("missing")).thenReturn(Optional.empty());
+        Mockito.when(repository.incrementAndReturn(codec.decode("missed"), "missed")).thenReturn(Optional.empty());
+
+        Optional<String> result = service.resolveAndTrack("missed", VISITOR);
+
+        assertThat(result).isEmpty();
+        Mockito.verify(repository).incrementAndReturn(codec.decode("missed"), "missed");
+    }
+
+    @Test
+    void resolveAndTrack_rejectsInvalidCodeWithoutQuery() {
+        Optional<String> result = service.resolveAndTrack("not-a-code", VISITOR);
+
+        assertThat(result).isEmpty();
+        Mockito.verifyNoInteractions(repository);
+    }
 
-        Optional<String> result = service.resolveAndTrack("missing");
+    @Test
+    void resolveAndTrack_rejectsCodeOfUnknownShardWithoutQuery() {
+        // Decodes to an id above 2^41, on shard 2 of a single-shard deployment
+        Optional<String> result = service.resolveAndTrack("missing", VISITOR);
 
         assertThat(result).isEmpty();
-        Mockito.verify(repository).incrementAndReturn("missing");
+        Mockito.verifyNoInteractions(repository);
+    }
+
+    @Test
+    void resolveAndTrack_looksUpLegacyBase64CodeById() {
+        var view = Mockito.mock(ShortUrlClickView.class);
+        Mockito.when(view.getId()).thenReturn(1L);
+        Mockito.when(view.getOriginalUrl()).thenReturn("https://legacy.com");
+        Mockito.when(repository.incrementAndReturn(1L, "AAAAAAAAAAE")).thenReturn(Optional.of(view));
+
+        assertThat(service.resolveAndTrack("AAAAAAAAAAE", VISITOR)).contains("https://legacy.com");
+    }
+
+    @Test
+    void resolveAndTrack_servesRepeatedLookupsFromCache() {
+        String code = "abc";
+        String original = "https://original.com";
+
+        var view = Mockito.mock(ShortUrlClickView.class);
+        Mockito.when(view.getId()).thenReturn(10L);
+        Mockito.when(view.getOriginalUrl()).thenReturn(original);
+        Mockito.when(view.getMaxClicks()).thenReturn(null);
+        Mockito.when(repository.incrementAndReturn(codec.decode(code), code)).thenReturn(Optional.of(view));
+
+        service.resolveAndTrack(code, VISITOR);
+        Optional<String> result = service.resolveAndTrack(code, VISITOR);
+
+        assertThat(result).contains(original);
+        Mockito.verify(repository, times(1)).incrementAndReturn(codec.decode(code), code);
+        Mockito.verify(clickTracker).record(10L);
+        Mockito.verify(uniqueVisitors, times(2)).record(10L, VISITOR);
+    }
+
+    @Test
+    void resolveAndTrack_countsEveryClickOfLimitedLinkInDatabase() {
+        String code = "abc";
+        var view = Mockito.mock(ShortUrlClickView.class);
+        Mockito.when(view.getId()).thenReturn(10L);
+        Mockito.when(view.getOriginalUrl()).thenReturn("https://original.com");
+        Mockito.when(view.getMaxClicks()).thenReturn(5L);
+        Mockito.when(repository.incrementAndReturn(codec.decode(code), code)).thenReturn(Optional.of(view));
+
+        service.resolveAndTrack(code, VISITOR);
+        service.resolveAndTrack(code, VISITOR);
+
+        Mockito.verify(repository, times(2)).incrementAndReturn(codec.decode(code), code);
+        Mockito.verifyNoInteractions(clickTracker);
     }
 
     @Test
-    void listAll_returnsMappedResponses() {
+    void resolveAndTrack_returnsEmpty_whenCachedLinkExpired() {
+        redirectCache.put("abc", new CachedRedirect(10L, "https://original.com", Instant.now().minusSeconds(1)));
+
+        Optional<String> result = service.resolveAndTrack("abc", VISITOR);
+
+        assertThat(result).isEmpty();
+        assertThat(redirectCache.get("abc")).isNull();
+        Mockito.verifyNoInteractions(clickTracker, repository);
+    }
+
+    @Test
+    void listPage_returnsMappedResponses() {
         ShortUrl e1 = new ShortUrl();
         e1.setId(1L);
         e1.setOriginalUrl("https://a.com");
@@ -124,14 +289,17 @@ class UrlShorteningServiceTest {
         e2.setCreatedAt(Instant.now());
         e2.setClickCount(5);
 
-        Mockito.when(repository.findAll()).thenReturn(of(e1, e2));
+        Mockito.when(repository.findByIdGreaterThanAndDeletedAtIsNullOrderByIdAsc(0L, Limit.of(101))).thenReturn(of(e1, e2));
         Mockito.when(mapper.toDto(Mockito.any(ShortUrl.class))).thenAnswer(inv -> {
             ShortUrl x = inv.getArgument(0);
-            return new UrlResponse(x.getId(), x.getOriginalUrl(), x.getShortCode(), x.getCreatedAt(), x.getClickCount(), x.getLastAccessedAt());
+            return new UrlResponse(x.getId(), x.getOriginalUrl(), x.getShortCode(), x.getCreatedAt(), x.getClickCount(), x.getLastAccessedAt(),
+                    x.getExpiresAt(), x.getMaxClicks());
         });
 
-        List<UrlResponse> list = service.listAll();
+        UrlPageResponse page = service.listPage(null, null);
+        List<UrlResponse> list = page.items();
 
+        assertThat(page.nextCursor()).isNull();
         assertThat(list).hasSize(2);
         assertThat(list.get(0).id()).isEqualTo(1L);
         assertThat(list.get(0).originalUrl()).isEqualTo("https://a.com");
@@ -140,32 +308,106 @@ class UrlShorteningServiceTest {
         assertThat(list.get(1).originalUrl()).isEqualTo("https://b.com");
         assertThat(list.get(1).shortCode()).isEqualTo("BBB");
 
-        Mockito.verify(repository).findAll();
+        Mockito.verify(repository).findByIdGreaterThanAndDeletedAtIsNullOrderByIdAsc(0L, Limit.of(101));
         Mockito.verify(mapper, Mockito.times(2)).toDto(Mockito.any(ShortUrl.class));
     }
 
+    @Test
+    void listPage_returnsCursorOfLastItem_whenMoreRowsExist() {
+        ShortUrl e1 = new ShortUrl();
+        e1.setId(11L);
+        ShortUrl e2 = new ShortUrl();
+        e2.setId(12L);
+        Mockito.when(repository.findByIdGreaterThanAndDeletedAtIsNullOrderByIdAsc(10L, Limit.of(2))).thenReturn(of(e1, e2));
+        Mockito.when(mapper.toDto(Mockito.any(ShortUrl.class))).thenAnswer(inv -> {
+            ShortUrl x = inv.getArgument(0);
+            return new UrlResponse(x.getId(), x.getOriginalUrl(), x.getShortCode(), x.getCreatedAt(), x.getClickCount(), x.getLastAccessedAt(),
+                    x.getExpiresAt(), x.getMaxClicks());
+        });
+
+        UrlPageResponse page = service.listPage(10L, 1);
+
+        assertThat(page.items()).extracting(UrlResponse::id).containsExactly(11L);
+        assertThat(page.nextCursor()).isEqualTo(11L);
+    }
+
+    @Test
+    void listPage_mergesShardsById() {
+        service = newService(false, new Shards(new ShardingProperties(true, List.of("jdbc:postgresql://shard-1/db"), 1, null, 2)));
+        ShortUrl onShard0 = new ShortUrl();
+        onShard0.setId(7L);
+        ShortUrl onShard1 = new ShortUrl();
+        onShard1.setId(1L << Shards.SHARD_SHIFT | 3);
+        ShortUrl alsoOnShard0 = new ShortUrl();
+        alsoOnShard0.setId(9L);
+        Mockito.when(repository.findByIdGreaterThanAndDeletedAtIsNullOrderByIdAsc(0L, Limit.of(3)))
+                .thenAnswer(inv -> Shards.current() == 0 ? of(onShard0, alsoOnShard0) : of(onShard1));
+        Mockito.when(mapper.toDto(Mockito.any(ShortUrl.class))).thenAnswer(inv -> {
+            ShortUrl x = inv.getArgument(0);
+            return new UrlResponse(x.getId(), null, null, null, 0, null, null, null);
+        });
+
+        UrlPageResponse page = service.listPage(null, 2);
+
+        assertThat(page.items()).extracting(UrlResponse::id).containsExactly(7L, 9L);
+        assertThat(page.nextCursor()).isEqualTo(9L);
+    }
+
+    @Test
+    void getTopByWindow_mergesTopOfEveryShard() {
+        service = newService(false, new Shards(new ShardingProperties(true, List.of("jdbc:postgresql://shard-1/db"), 1, null, 2)));
+        TopItemView a = topView(10);
+        TopItemView b = topView(4);
+        TopItemView c = topView(7);
+        Mockito.when(repository.findTopByClickCount(2)).thenAnswer(inv -> Shards.current() == 0 ? of(a, b) : of(c));
+
+        service.getTopByWindow(null, 2);
+
+        Mockito.verify(topUrlMapper).toDtoList(of(a, c));
+    }
+
+    @Test
+    void listPageAndTop_queryEveryShardInReadOnlyTransactionBoundToIt() {
+        service = newService(false, new Shards(new ShardingProperties(true, List.of("jdbc:postgresql://shard-1/db"), 1, null, 2)));
+        List<String> seen = Collections.synchronizedList(new ArrayList<>());
+        Mockito.when(repository.findByIdGreaterThanAndDeletedAtIsNullOrderByIdAsc(anyLong(), any())).thenAnswer(inv -> {
+            seen.add("list@" + Shards.current() + ":" + TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            return of();
+        });
+        Mockito.when(repository.findTopByClickCount(anyInt())).thenAnswer(inv -> {
+            seen.add("top@" + Shards.current() + ":" + TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            return of();
+        });
+
+        service.listPage(null, 2);
+        service.getTopByWindow(null, 2);
+
+        assertThat(seen).containsExactlyInAnyOrder("list@0:true", "list@1:true", "top@0:true", "top@1:true");
+    }
+
     @Test
     void deleteById_returnsTrue_whenEntityExists() {
         Long id = 42L;
-        Mockito.when(repository.existsById(id)).thenReturn(true);
+        Mockito.when(jdbcRepository.softDelete(id)).thenReturn(Optional.of("AAA"));
+        redirectCache.put("AAA", new CachedRedirect(id, "https://a.com"));
 
         boolean result = service.deleteById(id);
 
         assertThat(result).isTrue();
-        Mockito.verify(repository).existsById(id);
-        Mockito.verify(repository).deleteById(id);
+        assertThat(redirectCache.get("AAA")).isNull();
+        Mockito.verify(jdbcRepository).softDelete(id);
+        Mockito.verifyNoInteractions(repository);
     }
 
     @Test
     void deleteById_returnsFalse_whenEntityMissing() {
         Long id = 100L;
-        Mockito.when(repository.existsById(id)).thenReturn(false);
+        Mockito.when(jdbcRepository.softDelete(id)).thenReturn(Optional.empty());
 
         boolean result = service.deleteById(id);
 
         assertThat(result).isFalse();
-        Mockito.verify(repository).existsById(id);
-        Mockito.verify(repository, Mockito.never()).deleteById(Mockito.anyLong());
+        Mockito.verify(jdbcRepository).softDelete(id);
     }
 
     @Test
@@ -176,8 +418,8 @@ class UrlShorteningServiceTest {
         var views = of(v1, v2);
         Mockito.when(repository.findTopByClickCount(limit)).thenReturn(views);
 
-        TopUrlResponse r1 = new TopUrlResponse("a", "https://a", 10, null);
-        TopUrlResponse r2 = new TopUrlResponse("b", "https://b", 5, null);
+        TopUrlResponse r1 = new TopUrlResponse("a", "https://a", 10, null, null);
+        TopUrlResponse r2 = new TopUrlResponse("b", "https://b", 5, null, null);
         Mockito.when(topUrlMapper.toDtoList(views)).thenReturn(of(r1, r2));
 
         var result = service.getTopByWindow(null, limit);
@@ -190,20 +432,51 @@ class UrlShorteningServiceTest {
     }
 
     @Test
-    void getTopByWindow_withDuration_usesWindowQuery() {
+    void getTopByWindow_withDuration_usesRollupQuery() {
         int limit = 2;
         TopItemView v = Mockito.mock(TopItemView.class);
         var views = of(v);
-        Mockito.when(repository.findTopByWindow(Mockito.any(), Mockito.eq(limit))).thenReturn(views);
+        Mockito.when(repository.findTopByWindowFromRollups(Mockito.any(), Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any(), Mockito.eq(limit))).thenReturn(views);
 
-        TopUrlResponse r = new TopUrlResponse("x", "https://x", 7, null);
+        TopUrlResponse r = new TopUrlResponse("x", "https://x", 7, null, null);
         Mockito.when(topUrlMapper.toDtoList(views)).thenReturn(of(r));
 
         var result = service.getTopByWindow("7d", limit);
 
         assertThat(result).containsExactly(r);
-        Mockito.verify(repository).findTopByWindow(Mockito.any(), Mockito.eq(limit));
+        Mockito.verify(repository).findTopByWindowFromRollups(Mockito.any(), Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any(), Mockito.eq(limit));
         Mockito.verify(repository, Mockito.never()).findTopByClickCount(Mockito.anyInt());
         Mockito.verify(topUrlMapper).toDtoList(views);
     }
+
+    @Test
+    void estimateTopByWindow_servedFromTrending() {
+        TopUrlResponse r = new TopUrlResponse("x", "https://x", 7, null, null);
+        Mockito.when(trendingTracker.top(Duration.ofMinutes(30), 5)).thenReturn(Optional.of(of(r)));
+
+        var result = service.estimateTopByWindow("30m", 5);
+
+        assertThat(result).contains(of(r));
+        Mockito.verifyNoInteractions(topUrlMapper, repository);
+    }
+
+    @Test
+    void getTopByWindow_neverUsesTrending() {
+        Mockito.when(repository.findTopByWindowFromRollups(Mockito.any(), Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any(), Mockito.eq(5))).thenReturn(of());
+        Mockito.when(topUrlMapper.toDtoList(of())).thenReturn(of());
+
+        var result = service.getTopByWindow("30m", 5);
+
+        assertThat(result).isEmpty();
+        Mockito.verifyNoInteractions(trendingTracker);
+    }
+
+    private static TopItemView topView(long clicks) {
+        TopItemView view = Mockito.mock(TopItemView.class);
+        when(view.getClickCount()).thenReturn(clicks);
+        return view;
+    }
 }
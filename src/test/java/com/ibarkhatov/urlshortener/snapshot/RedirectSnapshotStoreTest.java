@@ -0,0 +1,113 @@
+package com.ibarkhatov.urlshortener.snapshot;
+
+import com.ibarkhatov.urlshortener.cache.RedirectCache;
+import com.ibarkhatov.urlshortener.config.RedirectCacheProperties;
+import com.ibarkhatov.urlshortener.config.RedirectSnapshotProperties;
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import com.ibarkhatov.urlshortener.domain.ShortUrl;
+import com.ibarkhatov.urlshortener.repository.ShortUrlJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+
+class RedirectSnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final ShortUrlJdbcRepository jdbcRepository = Mockito.mock(ShortUrlJdbcRepository.class);
+    private final Shards shards = new Shards(new ShardingProperties(false, List.of(), 0, null, 0));
+
+    @Test
+    void syncDeletes_masksLinksDeletedOnOtherNodes() {
+        RedirectSnapshotStore store = store();
+        links(link(1, "a"), link(2, "b"));
+        store.write();
+        assertThat(store.get("b")).isNotNull();
+
+        deletedSince("b");
+        store.syncDeletes();
+
+        assertThat(store.get("a")).isNotNull();
+        assertThat(store.get("b")).isNull();
+    }
+
+    @Test
+    void start_masksLinksDeletedSinceTheSnapshotWasTaken() {
+        links(link(1, "a"), link(2, "b"));
+        store().write();
+        deletedSince("b");
+
+        RedirectSnapshotStore restarted = store();
+        restarted.start();
+
+        assertThat(restarted.get("a")).isNotNull();
+        assertThat(restarted.get("b")).isNull();
+    }
+
+    @Test
+    void write_liftsMaskOnceTheLinkIsGone() {
+        RedirectSnapshotStore store = store();
+        links(link(1, "a"), link(2, "b"));
+        store.write();
+        deletedSince("b");
+        store.syncDeletes();
+
+        deletedSince();
+        links(link(1, "a"));
+        store.write();
+
+        assertThat(store.get("a")).isNotNull();
+        assertThat(store.get("b")).isNull();
+    }
+
+    private RedirectSnapshotStore store() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new RedirectSnapshotStore(jdbcRepository,
+                new RedirectCache(new RedirectCacheProperties(100, Duration.ofHours(1), 0), meterRegistry),
+                new RedirectSnapshotProperties(true, directory.resolve("redirects.bin"), Duration.ofHours(1),
+                        Duration.ofSeconds(30), Duration.ofDays(1), 10),
+                shards, meterRegistry);
+    }
+
+    private void links(ShortUrl... entities) {
+        doAnswer(inv -> {
+            Consumer<ShortUrl> consumer = inv.getArgument(1);
+            for (ShortUrl entity : entities) {
+                consumer.accept(entity);
+            }
+            return null;
+        }).when(jdbcRepository).forEachLive(anyInt(), any());
+    }
+
+    private void deletedSince(String... shortCodes) {
+        doAnswer(inv -> {
+            Consumer<String> consumer = inv.getArgument(1);
+            for (String shortCode : shortCodes) {
+                consumer.accept(shortCode);
+            }
+            return null;
+        }).when(jdbcRepository).forEachShortCodeDeletedSince(any(Instant.class), any());
+    }
+
+    private static ShortUrl link(long id, String shortCode) {
+        ShortUrl entity = new ShortUrl();
+        entity.setId(id);
+        entity.setShortCode(shortCode);
+        entity.setOriginalUrl("https://example.com/" + shortCode);
+        return entity;
+    }
+}
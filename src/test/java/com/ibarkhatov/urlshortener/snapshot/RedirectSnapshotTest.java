@@ -0,0 +1,77 @@
+package com.ibarkhatov.urlshortener.snapshot;
+
+import com.ibarkhatov.urlshortener.cache.CachedRedirect;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RedirectSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void get_findsEveryWrittenLink_acrossChunkBoundaries() throws IOException {
+        Path path = directory.resolve("redirects.bin");
+        Instant createdAt = Instant.parse("2024-05-01T10:00:00Z");
+        RedirectSnapshot snapshot;
+        try (RedirectSnapshotWriter writer = new RedirectSnapshotWriter(path, 1000, createdAt, 8)) {
+            for (int i = 0; i < 1000; i++) {
+                writer.add(i, "c" + i, "https://example.com/" + "ü".repeat(i % 50) + i);
+            }
+            snapshot = writer.commit();
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(snapshot.get("c" + i)).isEqualTo(new CachedRedirect((long) i, "https://example.com/" + "ü".repeat(i % 50) + i));
+        }
+        assertThat(snapshot.get("c1000")).isNull();
+        assertThat(snapshot.entries()).isEqualTo(1000);
+        assertThat(snapshot.createdAt()).isEqualTo(createdAt);
+        assertThat(RedirectSnapshot.open(path).get("c42")).isEqualTo(snapshot.get("c42"));
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactly(path);
+        }
+    }
+
+    @Test
+    void add_growsTableBeyondExpectedEntries() throws IOException {
+        Path path = directory.resolve("redirects.bin");
+        RedirectSnapshot snapshot;
+        try (RedirectSnapshotWriter writer = new RedirectSnapshotWriter(path, 3, Instant.now(), 8)) {
+            for (int i = 0; i < 500; i++) {
+                writer.add(i, "c" + i, "https://example.com/" + i);
+            }
+            snapshot = writer.commit();
+        }
+
+        assertThat(snapshot.entries()).isEqualTo(500);
+        for (int i = 0; i < 500; i++) {
+            assertThat(snapshot.get("c" + i)).isEqualTo(new CachedRedirect((long) i, "https://example.com/" + i));
+        }
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactly(path);
+        }
+    }
+
+    @Test
+    void open_rejectsTruncatedFile() throws IOException {
+        Path path = directory.resolve("redirects.bin");
+        try (RedirectSnapshotWriter writer = new RedirectSnapshotWriter(path, 1, Instant.now())) {
+            writer.add(1, "abc", "https://example.com");
+            writer.commit();
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThatThrownBy(() -> RedirectSnapshot.open(path)).isInstanceOf(IOException.class);
+    }
+}
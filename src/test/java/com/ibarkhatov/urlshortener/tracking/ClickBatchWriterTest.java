@@ -0,0 +1,38 @@
+package com.ibarkhatov.urlshortener.tracking;
+
+import com.ibarkhatov.urlshortener.repository.ClickJdbcRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Instant;
+import java.util.List;
+
+import static java.util.List.of;
+
+class ClickBatchWriterTest {
+
+    @Test
+    void write_coalescesClicksPerLink_andKeepsEveryAccessRow() {
+        ClickJdbcRepository repository = Mockito.mock(ClickJdbcRepository.class);
+        ClickBatchWriter writer = new ClickBatchWriter(repository);
+        Instant t1 = Instant.parse("2024-01-01T00:00:00Z");
+        Instant t2 = t1.plusSeconds(5);
+        List<ClickEvent> events = of(
+                new ClickEvent(7L, t2),
+                new ClickEvent(3L, t1),
+                new ClickEvent(7L, t1)
+        );
+
+        writer.write(events);
+
+        Mockito.verify(repository).applyClicks(of(
+                new ClickAggregate(3L, 1, t1),
+                new ClickAggregate(7L, 2, t2)
+        ));
+        Mockito.verify(repository).insertAccesses(events);
+        Mockito.verify(repository).applyRollups(of(
+                new ClickBucket(3L, t1, 1, t1),
+                new ClickBucket(7L, t1, 2, t2)
+        ));
+    }
+}
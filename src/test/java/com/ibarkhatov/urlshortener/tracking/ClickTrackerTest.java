@@ -0,0 +1,96 @@
+package com.ibarkhatov.urlshortener.tracking;
+
+import com.ibarkhatov.urlshortener.config.ClickTrackingProperties;
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class ClickTrackerTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ClickBatchWriter writer = Mockito.mock(ClickBatchWriter.class);
+    private final List<Long> written = Collections.synchronizedList(new ArrayList<>());
+    private final Answer<Void> recordWrite = inv -> {
+        inv.<List<ClickEvent>>getArgument(0).forEach(event -> written.add(event.shortUrlId()));
+        return null;
+    };
+
+    private ClickTracker newTracker(int queueCapacity, int maxRetained) {
+        doAnswer(recordWrite).when(writer).write(any());
+        return new ClickTracker(new ClickTrackingProperties(queueCapacity, 10, Duration.ofMillis(10), Duration.ZERO, maxRetained),
+                writer, new Shards(new ShardingProperties(false, List.of(), 0, null, 0)), meterRegistry);
+    }
+
+    @Test
+    void record_writesClickSynchronously_whenQueueIsFull() {
+        ClickTracker tracker = newTracker(1, 0);
+
+        tracker.record(1L);
+        tracker.record(2L);
+
+        assertThat(written).containsExactly(2L);
+        assertThat(meterRegistry.counter("urlshortener.clicks.synchronous").count()).isEqualTo(1);
+    }
+
+    @Test
+    void stop_flushesEveryBufferedClick() {
+        ClickTracker tracker = newTracker(1000, 0);
+        for (long id = 1; id <= 25; id++) {
+            tracker.record(id);
+        }
+
+        tracker.start();
+        tracker.stop();
+
+        assertThat(written).hasSize(25);
+        assertThat(meterRegistry.counter("urlshortener.clicks.flushed").count()).isEqualTo(25);
+    }
+
+    @Test
+    void failedFlush_isRetriedWithTheNextBatch() {
+        ClickTracker tracker = newTracker(1000, 100);
+        doThrow(new IllegalStateException("database down")).doAnswer(recordWrite).when(writer).write(any());
+        tracker.record(1L);
+        tracker.record(2L);
+
+        tracker.start();
+        verify(writer, timeout(5000).times(2)).write(any());
+        tracker.stop();
+
+        assertThat(written).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(meterRegistry.counter("urlshortener.clicks.failed").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("urlshortener.clicks.lost").count()).isZero();
+    }
+
+    @Test
+    void failedFlush_keepsAtMostMaxRetainedClicks() {
+        ClickTracker tracker = newTracker(1000, 2);
+        doThrow(new IllegalStateException("database down")).when(writer).write(any());
+        for (long id = 1; id <= 5; id++) {
+            tracker.record(id);
+        }
+
+        tracker.start();
+        verify(writer, timeout(5000).atLeast(2)).write(any());
+        double lostWhileRunning = meterRegistry.counter("urlshortener.clicks.lost").count();
+        tracker.stop();
+
+        assertThat(lostWhileRunning).isEqualTo(3);
+        assertThat(meterRegistry.counter("urlshortener.clicks.lost").count()).isEqualTo(5);
+        assertThat(written).isEmpty();
+    }
+}
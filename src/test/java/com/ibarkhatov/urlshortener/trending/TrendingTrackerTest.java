@@ -0,0 +1,124 @@
+package com.ibarkhatov.urlshortener.trending;
+
+import com.ibarkhatov.urlshortener.config.TrendingProperties;
+import com.ibarkhatov.urlshortener.dto.TopUrlResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrendingTrackerTest {
+
+    @Test
+    void top_reportsHeavyHitters_withinErrorBound() {
+        MutableClock clock = new MutableClock(Instant.parse("2024-01-01T10:00:00Z"));
+        TrendingTracker tracker = new TrendingTracker(new TrendingProperties(true, 10, 1024), clock, new SimpleMeterRegistry());
+        clock.now = Instant.parse("2024-01-01T10:00:30Z");
+        for (int i = 0; i < 300; i++) {
+            tracker.record("hot", "https://hot");
+            tracker.record("warm" + (i % 2), "https://warm");
+            tracker.record("tail" + i, "https://tail");
+        }
+        while (tracker.drain() > 0) {
+            // fold everything recorded
+        }
+
+        List<TopUrlResponse> top = tracker.top(Duration.ofSeconds(10), 3).orElseThrow();
+
+        long errorBound = 900 / 10;
+        assertThat(top).extracting(TopUrlResponse::shortCode).startsWith("hot");
+        assertThat(top.get(0).clickCount()).isBetween(300L, 300L + errorBound);
+        assertThat(top).extracting(TopUrlResponse::shortCode).contains("warm0", "warm1");
+    }
+
+    @Test
+    void top_isEmpty_beyondTrackedHorizon() {
+        MutableClock clock = new MutableClock(Instant.parse("2024-01-01T10:00:00Z"));
+        TrendingTracker tracker = new TrendingTracker(new TrendingProperties(true, 10, 1024), clock, new SimpleMeterRegistry());
+        clock.now = clock.now.plus(Duration.ofDays(3));
+
+        assertThat(tracker.top(Duration.ofDays(2), 10)).isEmpty();
+        assertThat(tracker.top(Duration.ofHours(24), 10)).isPresent();
+    }
+
+    @Test
+    void top_isEmpty_whileTrackingForLessThanTheWindow() {
+        MutableClock clock = new MutableClock(Instant.parse("2024-01-01T10:00:00Z"));
+        TrendingTracker tracker = new TrendingTracker(new TrendingProperties(true, 10, 1024), clock, new SimpleMeterRegistry());
+        clock.now = clock.now.plus(Duration.ofMinutes(30));
+
+        assertThat(tracker.top(Duration.ofHours(1), 10)).isEmpty();
+        assertThat(tracker.top(Duration.ofMinutes(30), 10)).isPresent();
+    }
+
+    @Test
+    void record_countsEveryClickOfConcurrentRedirects_onceFolded() throws InterruptedException {
+        MutableClock clock = new MutableClock(Instant.parse("2024-01-01T10:00:00Z"));
+        TrendingTracker tracker = new TrendingTracker(new TrendingProperties(true, 10, 65_536), clock, new SimpleMeterRegistry());
+        clock.now = clock.now.plus(Duration.ofHours(2));
+        tracker.start();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    tracker.record("hot", "https://hot");
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        tracker.stop();
+        while (tracker.drain() > 0) {
+            // fold what the stopped folder left behind
+        }
+
+        assertThat(tracker.top(Duration.ofHours(2), 1).orElseThrow()).singleElement()
+                .extracting(TopUrlResponse::clickCount).isEqualTo(20_000L);
+    }
+
+    @Test
+    void record_dropsClicksWhileBufferIsFull() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TrendingTracker tracker = new TrendingTracker(new TrendingProperties(true, 10, 4), Clock.systemUTC(), meterRegistry);
+        for (int i = 0; i < 6; i++) {
+            tracker.record("hot", "https://hot");
+        }
+
+        assertThat(meterRegistry.counter("urlshortener.trending.dropped").count()).isEqualTo(2);
+        assertThat(tracker.drain()).isEqualTo(4);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.ibarkhatov.urlshortener.uniques;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_isWithinThreeStandardErrors() {
+        for (int cardinality : new int[]{10, 1_000, 50_000, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog(12);
+            for (int i = 0; i < cardinality; i++) {
+                sketch.add(visitor(i));
+                sketch.add(visitor(i));
+            }
+
+            assertThat((double) sketch.estimate()).isCloseTo(cardinality, within(cardinality * 3 * 1.04 / 64 + 1));
+        }
+    }
+
+    @Test
+    void merge_equalsSketchOfUnion() {
+        HyperLogLog a = new HyperLogLog(12);
+        HyperLogLog b = new HyperLogLog(12);
+        HyperLogLog union = new HyperLogLog(12);
+        for (int i = 0; i < 30_000; i++) {
+            (i % 3 == 0 ? a : b).add(visitor(i));
+            union.add(visitor(i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            a.add(visitor(i));
+        }
+
+        a.merge(b);
+
+        assertThat(a.toBytes()).isEqualTo(union.toBytes());
+    }
+
+    @Test
+    void sparseSketch_matchesDenseOneAcrossTheSwitch() {
+        HyperLogLog growing = new HyperLogLog(12);
+        HyperLogLog dense = HyperLogLog.fromBytes(denseBytes(12));
+        for (int i = 0; i < 2_000; i++) {
+            growing.add(visitor(i));
+            dense.add(visitor(i));
+            if (i % 97 == 0) {
+                assertThat(growing.estimate()).isEqualTo(dense.estimate());
+                assertThat(growing.toBytes()).isEqualTo(dense.toBytes());
+            }
+        }
+
+        HyperLogLog merged = new HyperLogLog(12);
+        merged.merge(growing);
+        assertThat(merged.toBytes()).isEqualTo(dense.toBytes());
+    }
+
+    @Test
+    void toBytes_roundTripsSparseAndDense() {
+        HyperLogLog small = new HyperLogLog(12);
+        HyperLogLog large = new HyperLogLog(12);
+        for (int i = 0; i < 100_000; i++) {
+            if (i < 5) {
+                small.add(visitor(i));
+            }
+            large.add(visitor(i));
+        }
+
+        assertThat(small.toBytes()).hasSize(2 + 5 * 3);
+        assertThat(large.toBytes()).hasSize(2 + 4096);
+        assertThat(HyperLogLog.fromBytes(small.toBytes()).estimate()).isEqualTo(small.estimate());
+        assertThat(HyperLogLog.fromBytes(large.toBytes()).toBytes()).isEqualTo(large.toBytes());
+    }
+
+    private static byte[] denseBytes(int precision) {
+        byte[] bytes = new byte[2 + (1 << precision)];
+        bytes[0] = (byte) precision;
+        return bytes;
+    }
+
+    private static long visitor(int i) {
+        return UniqueVisitorTracker.visitorHash("10.0." + (i >>> 8 & 0xff) + "." + (i & 0xff), "agent-" + (i >>> 16));
+    }
+}
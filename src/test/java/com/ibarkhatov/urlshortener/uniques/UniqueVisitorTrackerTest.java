@@ -0,0 +1,80 @@
+package com.ibarkhatov.urlshortener.uniques;
+
+import com.ibarkhatov.urlshortener.config.ShardingProperties;
+import com.ibarkhatov.urlshortener.config.UniqueVisitorProperties;
+import com.ibarkhatov.urlshortener.datasource.Shards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class UniqueVisitorTrackerTest {
+    private final UniqueVisitorWriter writer = Mockito.mock(UniqueVisitorWriter.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UniqueVisitorTracker tracker = new UniqueVisitorTracker(
+            new UniqueVisitorProperties(true, 12, Duration.ofSeconds(10), 1000, 3), writer,
+            new Shards(new ShardingProperties(false, List.of(), 0, null, 0)), meterRegistry);
+
+    @Test
+    void flush_writesOneSketchPerLinkSortedById() {
+        for (int i = 0; i < 100; i++) {
+            tracker.record(2L, visitor(i));
+            tracker.record(1L, visitor(i % 10));
+        }
+
+        tracker.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<DaySketch>> written = ArgumentCaptor.forClass(List.class);
+        verify(writer).write(written.capture());
+        assertThat(written.getValue()).extracting(DaySketch::shortUrlId).containsExactly(1L, 2L);
+        assertThat(written.getValue()).extracting(s -> s.sketch().estimate()).containsExactly(10L, 100L);
+    }
+
+    @Test
+    void flush_keepsSketchesThatFailedToWrite() {
+        tracker.record(1L, visitor(7));
+        doThrow(new IllegalStateException("database down")).doNothing().when(writer).write(any());
+
+        tracker.flush();
+        tracker.record(1L, visitor(8));
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        HyperLogLog pending = new HyperLogLog(12);
+        tracker.mergePending(1L, today, today, pending);
+        tracker.flush();
+
+        assertThat(pending.estimate()).isEqualTo(2);
+        verify(writer, times(2)).write(any());
+    }
+
+    @Test
+    void record_dropsVisitsOfNewLinksBeyondMaxPending() {
+        for (long id = 1; id <= 5; id++) {
+            tracker.record(id, visitor(1));
+        }
+        tracker.record(2L, visitor(2));
+
+        tracker.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<DaySketch>> written = ArgumentCaptor.forClass(List.class);
+        verify(writer).write(written.capture());
+        assertThat(written.getValue()).extracting(DaySketch::shortUrlId).containsExactly(1L, 2L, 3L);
+        assertThat(meterRegistry.counter("urlshortener.uniques.dropped", "kind", "visit").count()).isEqualTo(2);
+    }
+
+    private static long visitor(int i) {
+        return UniqueVisitorTracker.visitorHash("192.0.2." + i, "agent");
+    }
+}